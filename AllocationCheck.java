@@ -0,0 +1,137 @@
+import java.lang.management.*;
+
+// Checks that a steady-state turn allocates nothing. Each case is warmed up until the JIT has
+// compiled it and the world's buffers have grown to size, then run again while the JVM's
+// per-thread allocation counter watches, until two passes in a row allocate the same; any
+// bytes allocated in that steady state fail the check.
+// The cases are the headless turn (strategy, jump and update) on each kind of world, a turn
+// through JumperEnv, looking up buildings across the chunks of an endless world far from its
+// start, drawing a frame into the renderer's buffer and reading a typed move.
+// Exits with status 1 if any case allocated; mvn verify runs it and fails the build on that.
+// Usage: java AllocationCheck [turns per case] [buildings file]
+public class AllocationCheck {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int MAX_PASSES = 10;
+
+    public static void main(String[] args) throws Exception {
+        int turns = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        World layout = WorldLoader.load(args.length > 1 ? args[1] : "buildings.txt");
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM can't count allocated bytes per thread");
+            System.exit(2);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        int failures = 0;
+        failures += check("headless turn, array world", turns, headlessTurns(ArrayWorld.copyOf(layout)));
+        failures += check("headless turn, list world", turns, headlessTurns(layout.copy()));
+        failures += check("headless turn, endless world", turns, headlessTurns(new ChunkedWorld(1)));
+        failures += check("endless world lookups", turns, chunkLookups(new ChunkedWorld(1)));
+        failures += check("environment step", turns, environmentSteps(layout));
+        failures += check("render frame", turns / 10, renderFrames(ArrayWorld.copyOf(layout)));
+        failures += check("parse move", turns, parseMoves());
+        if (failures > 0) {
+            System.out.println(failures + " case(s) allocated in steady state");
+            System.exit(1);
+        }
+        System.out.println("No allocation in steady state");
+    }
+
+    // Runs the case once to warm up, then measures passes until two in a row allocate the same
+    // number of bytes, so a pass the JIT was still compiling or deoptimizing doesn't decide the
+    // result; prints the bytes of the last pass. A case that really allocates allocates on every
+    // pass and still fails.
+    private static int check(String name, int runs, Case work) {
+        work.run(runs);
+        // Measuring an empty stretch first takes the counter's own cost out of the result
+        long overhead = THREADS.getCurrentThreadAllocatedBytes();
+        overhead = THREADS.getCurrentThreadAllocatedBytes() - overhead;
+        long allocated = measure(runs, work, overhead);
+        int passes = 1;
+        for (long previous = -1; allocated != previous && passes < MAX_PASSES; passes++) {
+            previous = allocated;
+            allocated = measure(runs, work, overhead);
+        }
+        System.out.printf("%-30s %10d runs %10d bytes allocated in the last of %d passes %s%n", name, runs, allocated,
+                passes, allocated > 0 ? "FAIL" : "ok");
+        return allocated > 0 ? 1 : 0;
+    }
+
+    private static long measure(int runs, Case work, long overhead) {
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        work.run(runs);
+        return THREADS.getCurrentThreadAllocatedBytes() - allocated - overhead;
+    }
+
+    // Greedy turns on one world, starting a new game with the next seed whenever one ends.
+    // The world carries on from where the last game left it, which is all a turn needs.
+    private static Case headlessTurns(World world) {
+        Player player = new Player("check");
+        Jumper game = new Jumper(world, player, 0);
+        game.setQuiet(true);
+        MoveStrategy strategy = new GreedyMoveStrategy();
+        long[] seed = {0};
+        return runs -> {
+            for (int i = 0; i < runs; i++) {
+                if (player.getHasWon() || player.getHasLost()) {
+                    game.restart(++seed[0]);
+                }
+                int maxJumpRange = world.getHeight(player.getPosition());
+                game.playTurn(strategy.chooseJumpDirection(game, maxJumpRange), maxJumpRange);
+            }
+        };
+    }
+
+    private static Case environmentSteps(World layout) {
+        JumperEnv env = new JumperEnv(layout);
+        int[] observation = new int[env.getObservationSize()];
+        env.reset(0, observation);
+        long[] seed = {0};
+        return runs -> {
+            for (int i = 0; i < runs; i++) {
+                env.step(i % JumperEnv.ACTION_COUNT, observation);
+                if (env.isDone()) {
+                    env.reset(++seed[0], observation);
+                }
+            }
+        };
+    }
+
+    // Reads buildings all over the active chunks, so most lookups go to another chunk than the
+    // last one. The chunk numbers are far past the small Integer values the JVM caches.
+    private static Case chunkLookups(ChunkedWorld world) {
+        world.focusOn(1_000_000 * world.getChunkSize());
+        int start = world.getActiveStart();
+        int length = world.getActiveEnd() - start;
+        return runs -> {
+            for (int i = 0; i < runs; i++) {
+                world.getHeight(start + (int) (i * 40_503L % length));
+            }
+        };
+    }
+
+    private static Case renderFrames(World world) {
+        GameRenderer renderer = new GameRenderer();
+        Player player = new Player("check");
+        return runs -> {
+            for (int i = 0; i < runs; i++) {
+                player.setPosition(i % world.size());
+                renderer.render(world, player, i);
+            }
+        };
+    }
+
+    private static Case parseMoves() {
+        String[] lines = {"left", " RIGHT ", "Stay", "up", ""};
+        return runs -> {
+            for (int i = 0; i < runs; i++) {
+                JumpDirection.parse(lines[i % lines.length]);
+            }
+        };
+    }
+
+    private interface Case {
+        void run(int runs);
+    }
+}
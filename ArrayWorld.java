@@ -0,0 +1,201 @@
+import java.util.*;
+
+// Compact world for very large layouts: heights are kept in primitive short arrays and
+// the portal, fuel cell, web and frozen flags in bitsets, so a building costs about
+// four and a half bytes and a tick walks the heights sequentially. The positions of the set
+// flags are also listed in PositionSets, so the few hazards and pickups are found without a scan.
+public class ArrayWorld implements World {
+    private int size;
+    private short[] heights;
+    private short[] previousHeights;
+    private BitSet exitPortals;
+    private BitSet fuelCells;
+    private BitSet webs;
+    private BitSet frozen;
+    private PositionSet exitPortalPositions;
+    private PositionSet fuelCellPositions;
+    private PositionSet webPositions;
+    private PositionSet frozenPositions;
+
+    // Creates a world of the given size with every building at height 0 and no flags set
+    public ArrayWorld(int size) {
+        this.size = size;
+        heights = new short[size];
+        previousHeights = new short[size];
+        exitPortals = new BitSet(size);
+        fuelCells = new BitSet(size);
+        webs = new BitSet(size);
+        frozen = new BitSet(size);
+        exitPortalPositions = new PositionSet();
+        fuelCellPositions = new PositionSet();
+        webPositions = new PositionSet();
+        frozenPositions = new PositionSet();
+    }
+
+    // Wraps arrays that were loaded in bulk, such as by WorldLoader; the world takes them over
+    ArrayWorld(short[] heights, short[] previousHeights, BitSet exitPortals, BitSet fuelCells, BitSet webs, BitSet frozen) {
+        this.size = heights.length;
+        this.heights = heights;
+        this.previousHeights = previousHeights;
+        this.exitPortals = exitPortals;
+        this.fuelCells = fuelCells;
+        this.webs = webs;
+        this.frozen = frozen;
+        exitPortalPositions = PositionSet.of(exitPortals);
+        fuelCellPositions = PositionSet.of(fuelCells);
+        webPositions = PositionSet.of(webs);
+        frozenPositions = PositionSet.of(frozen);
+    }
+
+    // Copy constructor
+    public ArrayWorld(ArrayWorld other) {
+        size = other.size;
+        heights = other.heights.clone();
+        previousHeights = other.previousHeights.clone();
+        exitPortals = (BitSet) other.exitPortals.clone();
+        fuelCells = (BitSet) other.fuelCells.clone();
+        webs = (BitSet) other.webs.clone();
+        frozen = (BitSet) other.frozen.clone();
+        exitPortalPositions = new PositionSet(other.exitPortalPositions);
+        fuelCellPositions = new PositionSet(other.fuelCellPositions);
+        webPositions = new PositionSet(other.webPositions);
+        frozenPositions = new PositionSet(other.frozenPositions);
+    }
+
+    // Makes this world the same as another of the same size, reusing its arrays
+    public void copyFrom(ArrayWorld other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Can't copy a world of " + other.size + " buildings into one of " + size);
+        }
+        System.arraycopy(other.heights, 0, heights, 0, size);
+        System.arraycopy(other.previousHeights, 0, previousHeights, 0, size);
+        copyBits(other.exitPortals, exitPortals);
+        copyBits(other.fuelCells, fuelCells);
+        copyBits(other.webs, webs);
+        copyBits(other.frozen, frozen);
+        exitPortalPositions.copyFrom(other.exitPortalPositions);
+        fuelCellPositions.copyFrom(other.fuelCellPositions);
+        webPositions.copyFrom(other.webPositions);
+        frozenPositions.copyFrom(other.frozenPositions);
+    }
+
+    private static void copyBits(BitSet from, BitSet to) {
+        to.clear();
+        to.or(from);
+    }
+
+    public static ArrayWorld copyOf(List<Building> buildings) {
+        return copyOf(new ListWorld(buildings));
+    }
+
+    public static ArrayWorld copyOf(World world) {
+        ArrayWorld copy = new ArrayWorld(world.size());
+        for (int i = 0; i < world.size(); i++) {
+            copy.setHeight(i, world.getHeight(i));
+            copy.setPreviousHeight(i, world.getPreviousHeight(i));
+            copy.setHasExitPortal(i, world.hasExitPortal(i));
+            copy.setHasFuelCell(i, world.hasFuelCell(i));
+            copy.setHasWeb(i, world.hasWeb(i));
+            copy.setFrozen(i, world.isFrozen(i));
+        }
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getHeight(int index) {
+        return heights[index];
+    }
+
+    public void setHeight(int index, int height) {
+        heights[index] = toShort(height);
+    }
+
+    public int getPreviousHeight(int index) {
+        return previousHeights[index];
+    }
+
+    public void setPreviousHeight(int index, int previousHeight) {
+        previousHeights[index] = toShort(previousHeight);
+    }
+
+    public boolean hasExitPortal(int index) {
+        return exitPortals.get(index);
+    }
+
+    public void setHasExitPortal(int index, boolean hasExitPortal) {
+        if (exitPortals.get(index) != hasExitPortal) {
+            exitPortals.set(index, hasExitPortal);
+            exitPortalPositions.update(index, hasExitPortal);
+        }
+    }
+
+    public boolean hasFuelCell(int index) {
+        return fuelCells.get(index);
+    }
+
+    public void setHasFuelCell(int index, boolean hasFuelCell) {
+        if (fuelCells.get(index) != hasFuelCell) {
+            fuelCells.set(index, hasFuelCell);
+            fuelCellPositions.update(index, hasFuelCell);
+        }
+    }
+
+    public boolean hasWeb(int index) {
+        return webs.get(index);
+    }
+
+    public void setHasWeb(int index, boolean hasWeb) {
+        if (webs.get(index) != hasWeb) {
+            webs.set(index, hasWeb);
+            webPositions.update(index, hasWeb);
+        }
+    }
+
+    public boolean isFrozen(int index) {
+        return frozen.get(index);
+    }
+
+    public void setFrozen(int index, boolean isFrozen) {
+        if (frozen.get(index) != isFrozen) {
+            frozen.set(index, isFrozen);
+            frozenPositions.update(index, isFrozen);
+        }
+    }
+
+    public PositionSet getExitPortals() {
+        return exitPortalPositions;
+    }
+
+    public PositionSet getFuelCells() {
+        return fuelCellPositions;
+    }
+
+    public PositionSet getWebs() {
+        return webPositions;
+    }
+
+    public PositionSet getFrozenBuildings() {
+        return frozenPositions;
+    }
+
+    public Building getBuilding(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Building " + index + " is outside a world of " + size);
+        }
+        return new WorldBuilding(this, index);
+    }
+
+    public World copy() {
+        return new ArrayWorld(this);
+    }
+
+    private static short toShort(int height) {
+        if (height < 0 || height > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Building height out of range: " + height);
+        }
+        return (short) height;
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs many headless games of Jumper across all cores and reports the aggregate outcome.
+// Usage: java BatchSimulator [games] [strategy] [seed] [threads] [buildings file] [outcome file]
+public class BatchSimulator {
+    private static final int GAMES_PER_TASK = 10_000;
+    private static final int DEFAULT_MAX_TURNS = 1_000;
+
+    private final World layout;
+    private final MoveStrategy strategy;
+    private final int maxTurns;
+    private OutcomeSink outcomeSink;
+
+    public BatchSimulator(World layout, MoveStrategy strategy, int maxTurns) {
+        this.layout = layout;
+        this.strategy = strategy;
+        this.maxTurns = maxTurns;
+    }
+
+    // Records the outcome of every game played in a binary outcome file
+    public void setOutcomeSink(OutcomeSink outcomeSink) {
+        this.outcomeSink = outcomeSink;
+    }
+
+    // Plays games numbered 0 to games - 1, each seeded from the base seed and its own number
+    public SimulationStats run(long games, long seed, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SimulationStats>> results = new ArrayList<>();
+            for (long first = 0; first < games; first += GAMES_PER_TASK) {
+                long start = first;
+                long end = Math.min(games, first + GAMES_PER_TASK);
+                results.add(executor.submit(() -> playGames(start, end, seed)));
+            }
+
+            SimulationStats total = new SimulationStats();
+            for (Future<SimulationStats> result : results) {
+                total.merge(result.get());
+            }
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SimulationStats playGames(long start, long end, long seed) throws InterruptedException {
+        SimulationStats stats = new SimulationStats();
+        for (long gameNumber = start; gameNumber < end; gameNumber++) {
+            Jumper game = playGame(gameSeed(seed, gameNumber));
+            stats.record(game);
+            if (outcomeSink != null) {
+                outcomeSink.submit(OutcomeRecord.of(game));
+            }
+        }
+        return stats;
+    }
+
+    // Plays one game on a fresh copy of the layout
+    public Jumper playGame(long gameSeed) {
+        Jumper game = new Jumper(layout.copy(), new Player("sim"), gameSeed);
+        game.playHeadless(strategy, maxTurns);
+        return game;
+    }
+
+    // Spreads consecutive game numbers over unrelated seeds (the SplitMix64 finaliser)
+    public static long gameSeed(long seed, long gameNumber) {
+        long z = seed + (gameNumber + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        MoveStrategy strategy = MoveStrategy.forName(args.length > 1 ? args[1] : "greedy");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String fileName = args.length > 4 ? args[4] : "buildings.txt";
+
+        Jumper loader = new Jumper();
+        loader.readBuildingsFromFile(fileName);
+        BatchSimulator simulator = new BatchSimulator(loader.getWorld(), strategy, DEFAULT_MAX_TURNS);
+        OutcomeSink outcomeSink = args.length > 5 ? new OutcomeSink(args[5]) : null;
+        simulator.setOutcomeSink(outcomeSink);
+
+        long startTime = System.nanoTime();
+        SimulationStats stats = simulator.run(games, seed, threads);
+        if (outcomeSink != null) {
+            outcomeSink.close();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.println(stats);
+        System.out.printf("Played %d games on %d threads in %.2f s (%.0f games/s)%n",
+                stats.getGames(), threads, seconds, stats.getGames() / seconds);
+    }
+}
+
+// Aggregate results of a batch of headless games
+class SimulationStats {
+    private long games;
+    private long wins;
+    private long totalTurns;
+    private long totalCharge;
+    private long totalFuelCells;
+
+    public void record(Jumper game) {
+        games++;
+        if (game.getPlayer().getHasWon()) {
+            wins++;
+        }
+        totalTurns += game.getNumberOfTurnsPlayed();
+        totalCharge += game.getPlayer().getCharge();
+        totalFuelCells += game.getNumberOfFuelCellsFound();
+    }
+
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        totalTurns += other.totalTurns;
+        totalCharge += other.totalCharge;
+        totalFuelCells += other.totalFuelCells;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getAverageTurns() {
+        return games == 0 ? 0 : (double) totalTurns / games;
+    }
+
+    public double getAverageCharge() {
+        return games == 0 ? 0 : (double) totalCharge / games;
+    }
+
+    public double getAverageFuelCells() {
+        return games == 0 ? 0 : (double) totalFuelCells / games;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Games: %d%nWin rate: %.4f%nAverage turns: %.3f%nAverage final charge: %.3f%nAverage fuel cells found: %.3f",
+                games, getWinRate(), getAverageTurns(), getAverageCharge(), getAverageFuelCells());
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.*;
+
+public class Building {
+    private int height;
+    private boolean hasExitPortal;
+    private boolean hasFuelCell;
+    private boolean hasWeb;
+    private boolean isFrozen;
+    private int previousHeight;
+
+    // The ListWorld index told about flag changes, and this building's position in it
+    private FlagIndex flagIndex;
+    private int flagPosition;
+
+    public Building() {
+        this.height = 0;
+        this.hasExitPortal = false;
+        this.hasFuelCell = false;
+        this.hasWeb = false;
+        this.isFrozen = false;
+    }
+
+    public Building(int height, boolean hasExitPortal, boolean hasFuelCell, boolean hasWeb, boolean isFrozen) {
+        this.height = height;
+        this.hasExitPortal = hasExitPortal;
+        this.hasFuelCell = hasFuelCell;
+        this.hasWeb = hasWeb;
+        this.isFrozen = isFrozen;
+        this.previousHeight = height; 
+    }
+
+    // Copy constructor, used to give every headless game its own buildings. Reads through the
+    // getters so a view of an ArrayWorld building copies too.
+    public Building(Building other) {
+        this.height = other.getHeight();
+        this.hasExitPortal = other.hasExitPortal();
+        this.hasFuelCell = other.hasFuelCell();
+        this.hasWeb = other.hasWeb();
+        this.isFrozen = other.isFrozen();
+        this.previousHeight = other.getPreviousHeight();
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public boolean hasExitPortal() {
+        return hasExitPortal;
+    }
+
+    public void setHasExitPortal(boolean hasExitPortal) {
+        this.hasExitPortal = hasExitPortal;
+        if (flagIndex != null) {
+            flagIndex.exitPortals.update(flagPosition, hasExitPortal);
+        }
+    }
+
+    public boolean hasFuelCell() {
+        return hasFuelCell;
+    }
+
+    public void setHasFuelCell(boolean hasFuelCell) {
+        this.hasFuelCell = hasFuelCell;
+        if (flagIndex != null) {
+            flagIndex.fuelCells.update(flagPosition, hasFuelCell);
+        }
+    }
+
+    public boolean hasWeb() {
+        return hasWeb;
+    }
+
+    public void setHasWeb(boolean hasWeb) {
+        this.hasWeb = hasWeb;
+        if (flagIndex != null) {
+            flagIndex.webs.update(flagPosition, hasWeb);
+        }
+    }
+
+    public boolean isFrozen() {
+        return isFrozen;
+    }
+
+    public void setFrozen(boolean frozen) {
+        isFrozen = frozen;
+        if (flagIndex != null) {
+            flagIndex.frozen.update(flagPosition, frozen);
+        }
+    }
+
+    public int getPosition(List<Building> buildings) {
+        // Return the index of this building in the buildings list
+        return buildings.indexOf(this);
+    }
+
+    public int getPreviousHeight() {
+        return previousHeight;
+    }
+
+    public void setPreviousHeight(int previousHeight) {
+        this.previousHeight = previousHeight;
+    }
+
+    FlagIndex getFlagIndex() {
+        return flagIndex;
+    }
+
+    void setFlagIndex(FlagIndex flagIndex, int flagPosition) {
+        this.flagIndex = flagIndex;
+        this.flagPosition = flagPosition;
+    }
+
+}
@@ -0,0 +1,472 @@
+import java.nio.*;
+import java.util.*;
+
+// An endless world for endless mode. Buildings are generated on demand, a chunk of them at a
+// time, from the world's seed and the chunk's number, so a chunk always starts out the same.
+// Only the chunks within activeRadius chunks of the player are active: the turn's random
+// events move heights, webs, freezes and fuel cells there and nowhere else. At most
+// maxResidentChunks chunks are kept; when another is needed the least recently used inactive
+// one is evicted, and if the player comes back it is generated again as it first was.
+// Memory therefore stays bounded however far the player travels.
+// Resident chunks are found by their int number in an open-addressed table and kept in a list
+// from least to most recently used, so a lookup allocates nothing.
+// Building indexes run from 0 to ENDLESS - 1; the player starts on building 0.
+public class ChunkedWorld implements World {
+    public static final int ENDLESS = Integer.MAX_VALUE;
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+    public static final int DEFAULT_MAX_HEIGHT = 10;
+    public static final int DEFAULT_ACTIVE_RADIUS = 1;
+    public static final int DEFAULT_MAX_RESIDENT_CHUNKS = 16;
+    private static final int FUEL_CELL_CHANCE = 16; // one building in 16 starts with a fuel cell
+    private static final int EXIT_PORTAL_CHANCE = 4; // one chunk in 4 after the first has a portal
+
+    private static final int EXIT_PORTAL = 1;
+    private static final int FUEL_CELL = 2;
+    private static final int WEB = 4;
+    private static final int FROZEN = 8;
+
+    private final long seed;
+    private final int chunkSize;
+    private final int maxHeight;
+    private final int activeRadius;
+    private final int maxResidentChunks;
+    // Resident chunks by number, linear probing, at most half full
+    private final Chunk[] chunks;
+    private final int slotShift;
+    private int residentCount;
+    private Chunk leastRecentlyUsed;
+    private Chunk mostRecentlyUsed;
+    private final PositionSet exitPortals = new PositionSet();
+    private final PositionSet fuelCells = new PositionSet();
+    private final PositionSet webs = new PositionSet();
+    private final PositionSet frozen = new PositionSet();
+    private int focus;
+    private int activeStart;
+    private int activeEnd;
+
+    // The chunk found by the last lookup, since runs of lookups mostly stay in one chunk
+    private Chunk lastChunk;
+
+    public ChunkedWorld(long seed) {
+        this(seed, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_HEIGHT, DEFAULT_ACTIVE_RADIUS, DEFAULT_MAX_RESIDENT_CHUNKS);
+    }
+
+    public ChunkedWorld(long seed, int chunkSize, int maxHeight, int activeRadius, int maxResidentChunks) {
+        if (chunkSize < 1 || maxHeight < 1 || activeRadius < 0) {
+            throw new IllegalArgumentException("Chunk size and maximum height must be positive and the radius not negative");
+        }
+        if (maxResidentChunks < 2 * activeRadius + 2) {
+            throw new IllegalArgumentException("Need room for at least " + (2 * activeRadius + 2) + " resident chunks");
+        }
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.maxHeight = maxHeight;
+        this.activeRadius = activeRadius;
+        this.maxResidentChunks = maxResidentChunks;
+        chunks = new Chunk[Integer.highestOneBit(maxResidentChunks + 1) * 4];
+        slotShift = Integer.numberOfLeadingZeros(chunks.length - 1);
+        focusOn(0);
+    }
+
+    // Copy constructor: the same seed and settings, with copies of the resident chunks in the same LRU order
+    public ChunkedWorld(ChunkedWorld other) {
+        this(other.seed, other.chunkSize, other.maxHeight, other.activeRadius, other.maxResidentChunks);
+        clearChunks();
+        for (Chunk chunk = other.leastRecentlyUsed; chunk != null; chunk = chunk.newer) {
+            install(new Chunk(chunk));
+        }
+        setFocus(other.focus);
+        lastChunk = other.lastChunk == null ? null : residentChunk(other.lastChunk.start / chunkSize);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getResidentChunkCount() {
+        return residentCount;
+    }
+
+    public int size() {
+        return ENDLESS;
+    }
+
+    public int getHeight(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk.heights[index - chunk.start];
+    }
+
+    public void setHeight(int index, int height) {
+        Chunk chunk = chunkOf(index);
+        chunk.heights[index - chunk.start] = toShort(height);
+    }
+
+    public int getPreviousHeight(int index) {
+        Chunk chunk = chunkOf(index);
+        return chunk.previousHeights[index - chunk.start];
+    }
+
+    public void setPreviousHeight(int index, int previousHeight) {
+        Chunk chunk = chunkOf(index);
+        chunk.previousHeights[index - chunk.start] = toShort(previousHeight);
+    }
+
+    public boolean hasExitPortal(int index) {
+        return hasFlag(index, EXIT_PORTAL);
+    }
+
+    public void setHasExitPortal(int index, boolean hasExitPortal) {
+        setFlag(index, EXIT_PORTAL, hasExitPortal, exitPortals);
+    }
+
+    public boolean hasFuelCell(int index) {
+        return hasFlag(index, FUEL_CELL);
+    }
+
+    public void setHasFuelCell(int index, boolean hasFuelCell) {
+        setFlag(index, FUEL_CELL, hasFuelCell, fuelCells);
+    }
+
+    public boolean hasWeb(int index) {
+        return hasFlag(index, WEB);
+    }
+
+    public void setHasWeb(int index, boolean hasWeb) {
+        setFlag(index, WEB, hasWeb, webs);
+    }
+
+    public boolean isFrozen(int index) {
+        return hasFlag(index, FROZEN);
+    }
+
+    public void setFrozen(int index, boolean isFrozen) {
+        setFlag(index, FROZEN, isFrozen, frozen);
+    }
+
+    // These list the flags in resident chunks only
+    public PositionSet getExitPortals() {
+        return exitPortals;
+    }
+
+    public PositionSet getFuelCells() {
+        return fuelCells;
+    }
+
+    public PositionSet getWebs() {
+        return webs;
+    }
+
+    public PositionSet getFrozenBuildings() {
+        return frozen;
+    }
+
+    public Building getBuilding(int index) {
+        checkIndex(index);
+        return new WorldBuilding(this, index);
+    }
+
+    public World copy() {
+        return new ChunkedWorld(this);
+    }
+
+    public int getActiveStart() {
+        return activeStart;
+    }
+
+    public int getActiveEnd() {
+        return activeEnd;
+    }
+
+    // A lookup can generate and evict chunks, so one thread at a time
+    public boolean allowsConcurrentHeightUpdates() {
+        return false;
+    }
+
+    // Makes the chunks around the position active and loads them
+    public void focusOn(int position) {
+        setFocus(position);
+        for (int start = activeStart; start < activeEnd && start >= 0; start += chunkSize) {
+            chunkOf(start);
+        }
+    }
+
+    private void setFocus(int position) {
+        checkIndex(position);
+        focus = position;
+        long chunk = position / chunkSize;
+        activeStart = (int) (Math.max(0, chunk - activeRadius) * chunkSize);
+        activeEnd = (int) Math.min(ENDLESS, (chunk + activeRadius + 1) * (long) chunkSize);
+    }
+
+    private boolean hasFlag(int index, int flag) {
+        Chunk chunk = chunkOf(index);
+        return (chunk.flags[index - chunk.start] & flag) != 0;
+    }
+
+    private void setFlag(int index, int flag, boolean value, PositionSet positions) {
+        Chunk chunk = chunkOf(index);
+        int i = index - chunk.start;
+        if (((chunk.flags[i] & flag) != 0) != value) {
+            chunk.flags[i] ^= flag;
+            positions.update(index, value);
+        }
+    }
+
+    // Finds the chunk holding the index, generating it if it isn't resident
+    private Chunk chunkOf(int index) {
+        Chunk chunk = lastChunk;
+        if (chunk != null && index >= chunk.start && index - chunk.start < chunkSize) {
+            return chunk;
+        }
+        checkIndex(index);
+        int number = index / chunkSize;
+        chunk = residentChunk(number);
+        if (chunk == null) {
+            chunk = generate(number);
+            install(chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    // Builds a chunk from the seed alone, so it comes out the same every time
+    private Chunk generate(int number) {
+        SplittableRandom random = new SplittableRandom(seed ^ (number * 0x9E3779B97F4A7C15L));
+        Chunk chunk = new Chunk(number * chunkSize, chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            short height = (short) (random.nextInt(maxHeight) + 1);
+            chunk.heights[i] = height;
+            chunk.previousHeights[i] = height;
+            if (random.nextInt(FUEL_CELL_CHANCE) == 0) {
+                chunk.flags[i] |= FUEL_CELL;
+            }
+        }
+        if (number > 0 && random.nextInt(EXIT_PORTAL_CHANCE) == 0) {
+            chunk.flags[random.nextInt(chunkSize)] |= EXIT_PORTAL;
+        }
+        return chunk;
+    }
+
+    // The resident chunk with the number, now the most recently used, or null
+    private Chunk residentChunk(int number) {
+        for (int slot = slotOf(number); chunks[slot] != null; slot = (slot + 1) & (chunks.length - 1)) {
+            Chunk chunk = chunks[slot];
+            if (chunk.start / chunkSize == number) {
+                unlink(chunk);
+                link(chunk);
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    // Makes the chunk resident as the most recently used, evicting one if there are too many
+    private void install(Chunk chunk) {
+        int slot = slotOf(chunk.start / chunkSize);
+        while (chunks[slot] != null) {
+            slot = (slot + 1) & (chunks.length - 1);
+        }
+        chunks[slot] = chunk;
+        residentCount++;
+        link(chunk);
+        if (residentCount > maxResidentChunks) {
+            evictLeastRecentlyUsed();
+        }
+        updateFlags(chunk, true);
+    }
+
+    // Evicts the least recently used chunk that isn't active; there is always one, as
+    // maxResidentChunks leaves room for more than the active chunks
+    private void evictLeastRecentlyUsed() {
+        for (Chunk chunk = leastRecentlyUsed; chunk != null; chunk = chunk.newer) {
+            if (!isActive(chunk)) {
+                remove(chunk);
+                updateFlags(chunk, false);
+                if (lastChunk == chunk) {
+                    lastChunk = null;
+                }
+                return;
+            }
+        }
+    }
+
+    // Takes the chunk out of the table, moving later chunks of its probe run back into the gap
+    private void remove(Chunk chunk) {
+        int mask = chunks.length - 1;
+        int slot = slotOf(chunk.start / chunkSize);
+        while (chunks[slot] != chunk) {
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (slot = (gap + 1) & mask; chunks[slot] != null; slot = (slot + 1) & mask) {
+            int home = slotOf(chunks[slot].start / chunkSize);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                chunks[gap] = chunks[slot];
+                gap = slot;
+            }
+        }
+        chunks[gap] = null;
+        residentCount--;
+        unlink(chunk);
+    }
+
+    // Fibonacci hashing: the top bits of the number times 2^32 / golden ratio
+    private int slotOf(int number) {
+        return number * 0x9E3779B9 >>> slotShift;
+    }
+
+    private void link(Chunk chunk) {
+        chunk.older = mostRecentlyUsed;
+        chunk.newer = null;
+        if (mostRecentlyUsed == null) {
+            leastRecentlyUsed = chunk;
+        } else {
+            mostRecentlyUsed.newer = chunk;
+        }
+        mostRecentlyUsed = chunk;
+    }
+
+    private void unlink(Chunk chunk) {
+        if (chunk.older == null) {
+            leastRecentlyUsed = chunk.newer;
+        } else {
+            chunk.older.newer = chunk.newer;
+        }
+        if (chunk.newer == null) {
+            mostRecentlyUsed = chunk.older;
+        } else {
+            chunk.newer.older = chunk.older;
+        }
+        chunk.older = null;
+        chunk.newer = null;
+    }
+
+    private void updateFlags(Chunk chunk, boolean present) {
+        for (int i = 0; i < chunkSize; i++) {
+            int flags = chunk.flags[i];
+            if (flags != 0) {
+                int index = chunk.start + i;
+                if ((flags & EXIT_PORTAL) != 0) {
+                    exitPortals.update(index, present);
+                }
+                if ((flags & FUEL_CELL) != 0) {
+                    fuelCells.update(index, present);
+                }
+                if ((flags & WEB) != 0) {
+                    webs.update(index, present);
+                }
+                if ((flags & FROZEN) != 0) {
+                    frozen.update(index, present);
+                }
+            }
+        }
+    }
+
+    // Drops every resident chunk, so they can be replaced by copies
+    private void clearChunks() {
+        Arrays.fill(chunks, null);
+        residentCount = 0;
+        leastRecentlyUsed = null;
+        mostRecentlyUsed = null;
+        exitPortals.clear();
+        fuelCells.clear();
+        webs.clear();
+        frozen.clear();
+        lastChunk = null;
+    }
+
+    private boolean isActive(Chunk chunk) {
+        return chunk.start >= activeStart && chunk.start < activeEnd;
+    }
+
+    private static void checkIndex(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Building " + index + " is before the first building");
+        }
+    }
+
+    private static short toShort(int height) {
+        if (height < 0 || height > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Building height out of range: " + height);
+        }
+        return (short) height;
+    }
+
+    // The settings, the focus and every resident chunk, least recently used first, so the
+    // same chunks are evicted after a restore:
+    //   seed (long), chunk size, maximum height, active radius, resident chunk limit,
+    //   focus, first index of the last chunk looked up or -1, resident chunk count (ints),
+    //   then per chunk its first index (int) and per building height (short),
+    //   previous height (short) and flags (byte)
+    int snapshotBytes() {
+        return 8 + 7 * 4 + residentCount * (4 + chunkSize * 5);
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(seed);
+        buffer.putInt(chunkSize);
+        buffer.putInt(maxHeight);
+        buffer.putInt(activeRadius);
+        buffer.putInt(maxResidentChunks);
+        buffer.putInt(focus);
+        buffer.putInt(lastChunk == null ? -1 : lastChunk.start);
+        buffer.putInt(residentCount);
+        for (Chunk chunk = leastRecentlyUsed; chunk != null; chunk = chunk.newer) {
+            buffer.putInt(chunk.start);
+            for (int i = 0; i < chunkSize; i++) {
+                buffer.putShort(chunk.heights[i]);
+                buffer.putShort(chunk.previousHeights[i]);
+                buffer.put(chunk.flags[i]);
+            }
+        }
+    }
+
+    static ChunkedWorld readFrom(ByteBuffer buffer) {
+        ChunkedWorld world = new ChunkedWorld(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        int focus = buffer.getInt();
+        int lastChunkStart = buffer.getInt();
+        int count = buffer.getInt();
+        world.clearChunks();
+        for (int c = 0; c < count; c++) {
+            Chunk chunk = new Chunk(buffer.getInt(), world.chunkSize);
+            for (int i = 0; i < world.chunkSize; i++) {
+                chunk.heights[i] = buffer.getShort();
+                chunk.previousHeights[i] = buffer.getShort();
+                chunk.flags[i] = buffer.get();
+            }
+            world.install(chunk);
+        }
+        world.setFocus(focus);
+        world.lastChunk = lastChunkStart < 0 ? null : world.residentChunk(lastChunkStart / world.chunkSize);
+        return world;
+    }
+
+    // One run of chunkSize buildings starting at index start
+    private static class Chunk {
+        final int start;
+        final short[] heights;
+        final short[] previousHeights;
+        final byte[] flags;
+        // Neighbours in the list from least to most recently used
+        Chunk older;
+        Chunk newer;
+
+        Chunk(int start, int chunkSize) {
+            this.start = start;
+            heights = new short[chunkSize];
+            previousHeights = new short[chunkSize];
+            flags = new byte[chunkSize];
+        }
+
+        Chunk(Chunk other) {
+            start = other.start;
+            heights = other.heights.clone();
+            previousHeights = other.previousHeights.clone();
+            flags = other.flags.clone();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.*;
+
+// The flag positions of one list of buildings, shared by every ListWorld wrapping that list
+public class FlagIndex {
+    final List<Building> buildings;
+    final PositionSet exitPortals = new PositionSet();
+    final PositionSet fuelCells = new PositionSet();
+    final PositionSet webs = new PositionSet();
+    final PositionSet frozen = new PositionSet();
+
+    private FlagIndex(List<Building> buildings) {
+        this.buildings = buildings;
+    }
+
+    // Reuses the index already attached to the list's buildings, or indexes them now
+    static FlagIndex of(List<Building> buildings) {
+        if (!buildings.isEmpty()) {
+            FlagIndex existing = buildings.get(0).getFlagIndex();
+            if (existing != null && existing.buildings == buildings) {
+                return existing;
+            }
+        }
+        FlagIndex index = new FlagIndex(buildings);
+        for (int i = 0; i < buildings.size(); i++) {
+            Building building = buildings.get(i);
+            building.setFlagIndex(index, i);
+            index.exitPortals.update(i, building.hasExitPortal());
+            index.fuelCells.update(i, building.hasFuelCell());
+            index.webs.update(i, building.hasWeb());
+            index.frozen.update(i, building.isFrozen());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,23 @@
+// Where a game reads the player's input and writes its screens. The console game uses the
+// terminal; GameServer's sessions print into one their selector thread shares and feed the
+// game their input a line at a time instead of through readLine.
+// Output may be buffered until the next readLine or flush, so a whole screen goes out at once.
+public interface GameConsole {
+
+    // Reads the next line the player typed. Throws UncheckedIOException when the input
+    // fails or ends, because the game can't go on without a player.
+    String readLine();
+
+    void print(CharSequence text);
+
+    void println(CharSequence text);
+
+    void println();
+
+    void flush();
+
+    // The terminal: System.in through one shared reader, and whatever System.out currently is
+    static GameConsole system() {
+        return SystemConsole.INSTANCE;
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.*;
+import java.util.*;
+
+// A recorded game: the seed, the player name, whether heights were redrawn by a ParallelTick,
+// the world as it was when the game started, every jump direction played, and the outcome
+// and a checksum of the final state. The two tick modes redraw heights differently, so a
+// replay has to use the mode the game was played in.
+// Jump directions take two bits each, so a long game is a few bytes of moves.
+// Replaying the moves on the same world with the same seed must end in the same state,
+// which GameReplayer checks.
+public class GameJournal {
+    public static final int MAGIC = 0x4A4D504A; // "JMPJ"
+    public static final int VERSION = 2; // 1 had no tick mode and was always played serially
+
+    private final long seed;
+    private final String playerName;
+    private final World initialWorld;
+    private boolean parallelTick;
+    private byte[] moves = new byte[16];
+    private int moveCount;
+
+    // Outcome, filled in by finish()
+    private int numberOfTurnsPlayed;
+    private int charge;
+    private int numberOfFuelCellsFound;
+    private boolean won;
+    private long checksum;
+
+    public GameJournal(long seed, String playerName, World initialWorld) {
+        this.seed = seed;
+        this.playerName = playerName;
+        this.initialWorld = ArrayWorld.copyOf(initialWorld);
+    }
+
+    public void addMove(JumpDirection jumpDirection) {
+        int move = jumpDirection.ordinal();
+        if (moveCount / 4 == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount / 4] |= move << (2 * (moveCount % 4));
+        moveCount++;
+    }
+
+    public JumpDirection getMove(int turn) {
+        return JumpDirection.forCode((moves[turn / 4] >> (2 * (turn % 4))) & 3);
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    // True when the game redrew its heights with a ParallelTick
+    public boolean usesParallelTick() {
+        return parallelTick;
+    }
+
+    public void setParallelTick(boolean parallelTick) {
+        this.parallelTick = parallelTick;
+    }
+
+    // Returns a fresh copy of the starting world, ready to be played on
+    public World getInitialWorld() {
+        return initialWorld.copy();
+    }
+
+    // Records how the game ended
+    public void finish(Jumper game) {
+        Player player = game.getPlayer();
+        numberOfTurnsPlayed = game.getNumberOfTurnsPlayed();
+        charge = player.getCharge();
+        numberOfFuelCellsFound = game.getNumberOfFuelCellsFound();
+        won = player.getHasWon();
+        checksum = checksum(game);
+    }
+
+    // True when the game ended exactly as the recorded one did
+    public boolean matches(Jumper game) {
+        Player player = game.getPlayer();
+        return game.getNumberOfTurnsPlayed() == numberOfTurnsPlayed
+                && player.getCharge() == charge
+                && game.getNumberOfFuelCellsFound() == numberOfFuelCellsFound
+                && player.getHasWon() == won
+                && checksum(game) == checksum;
+    }
+
+    public String describeOutcome() {
+        return String.format("turns %d, charge %d, fuel cells %d, %s, checksum %016x",
+                numberOfTurnsPlayed, charge, numberOfFuelCellsFound, won ? "won" : "lost", checksum);
+    }
+
+    // A 64-bit hash of everything the game can change: the buildings, the player and the counters
+    public static long checksum(Jumper game) {
+        World world = game.getWorld();
+        Player player = game.getPlayer();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < world.size(); i++) {
+            hash = mix(hash, world.getHeight(i));
+            hash = mix(hash, world.getPreviousHeight(i));
+            hash = mix(hash, flags(world, i));
+        }
+        hash = mix(hash, player.getPosition());
+        hash = mix(hash, player.getCharge());
+        hash = mix(hash, (player.getHasWon() ? 1 : 0) | (player.getHasLost() ? 2 : 0));
+        hash = mix(hash, game.getNumberOfTurnsPlayed());
+        return mix(hash, game.getNumberOfFuelCellsFound());
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
+    private static int flags(World world, int index) {
+        return (world.hasExitPortal(index) ? 1 : 0)
+                | (world.hasFuelCell(index) ? 2 : 0)
+                | (world.hasWeb(index) ? 4 : 0)
+                | (world.isFrozen(index) ? 8 : 0);
+    }
+
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeUTF(playerName);
+            out.writeBoolean(parallelTick);
+
+            out.writeInt(initialWorld.size());
+            for (int i = 0; i < initialWorld.size(); i++) {
+                out.writeShort(initialWorld.getHeight(i));
+                out.writeShort(initialWorld.getPreviousHeight(i));
+                out.writeByte(flags(initialWorld, i));
+            }
+
+            out.writeInt(moveCount);
+            out.write(moves, 0, (moveCount + 3) / 4);
+
+            out.writeInt(numberOfTurnsPlayed);
+            out.writeInt(charge);
+            out.writeInt(numberOfFuelCellsFound);
+            out.writeBoolean(won);
+            out.writeLong(checksum);
+        }
+    }
+
+    public static GameJournal read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a game journal: " + fileName);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("Unsupported game journal version " + version);
+            }
+            long seed = in.readLong();
+            String playerName = in.readUTF();
+            boolean parallelTick = version != 1 && in.readBoolean();
+
+            ArrayWorld world = new ArrayWorld(in.readInt());
+            for (int i = 0; i < world.size(); i++) {
+                world.setHeight(i, in.readShort());
+                world.setPreviousHeight(i, in.readShort());
+                int flags = in.readByte();
+                world.setHasExitPortal(i, (flags & 1) != 0);
+                world.setHasFuelCell(i, (flags & 2) != 0);
+                world.setHasWeb(i, (flags & 4) != 0);
+                world.setFrozen(i, (flags & 8) != 0);
+            }
+
+            GameJournal journal = new GameJournal(seed, playerName, world);
+            journal.parallelTick = parallelTick;
+            journal.moveCount = in.readInt();
+            journal.moves = new byte[Math.max(16, (journal.moveCount + 3) / 4)];
+            in.readFully(journal.moves, 0, (journal.moveCount + 3) / 4);
+
+            journal.numberOfTurnsPlayed = in.readInt();
+            journal.charge = in.readInt();
+            journal.numberOfFuelCellsFound = in.readInt();
+            journal.won = in.readBoolean();
+            journal.checksum = in.readLong();
+            return journal;
+        }
+    }
+}
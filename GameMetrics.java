@@ -0,0 +1,130 @@
+import java.io.*;
+import java.util.concurrent.atomic.*;
+import jdk.jfr.*;
+
+// Timers for each phase of a turn and counters for what happens to the player, kept in one
+// in-process registry and also emitted as JFR events (jumper.TurnPhase and jumper.GameEvent),
+// so they show up in a flight recording next to GC and allocation data.
+// Off unless the JVM is started with -Djumper.metrics=true. ENABLED is a constant, so when
+// it is off the JIT removes every call below and the turn loop runs as if they weren't there.
+// When on, the report is printed to standard error as the JVM exits.
+public final class GameMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("jumper.metrics");
+
+    // UPDATE covers the five phases after it
+    public enum Phase {
+        DISPLAY, PROMPT, JUMP, UPDATE, LANDING, FUEL_REFILL, HEIGHTS, WEB_MOVE, FREEZE_MOVE, WRITE_OUTCOME
+    }
+
+    public enum Counter {
+        WEB_HIT, FROZEN, FUEL_PICKUP, CHARGE_OUT
+    }
+
+    private static final LatencyHistogram[] timers = new LatencyHistogram[Phase.values().length];
+    private static final AtomicLong[] counters = new AtomicLong[Counter.values().length];
+
+    static {
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicLong();
+        }
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> report(System.err)));
+        }
+    }
+
+    private GameMetrics() {
+    }
+
+    // The start time to pass to stop(), or 0 when metrics are off
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Phase phase, long startTime) {
+        if (ENABLED) {
+            long duration = System.nanoTime() - startTime;
+            timers[phase.ordinal()].record(duration);
+            TurnPhaseEvent event = new TurnPhaseEvent();
+            if (event.isEnabled()) {
+                event.phase = phase.name();
+                event.time = duration;
+                event.commit();
+            }
+        }
+    }
+
+    public static void count(Counter counter, int position) {
+        if (ENABLED) {
+            counters[counter.ordinal()].incrementAndGet();
+            GameEvent event = new GameEvent();
+            if (event.isEnabled()) {
+                event.kind = counter.name();
+                event.position = position;
+                event.commit();
+            }
+        }
+    }
+
+    public static LatencyHistogram getTimer(Phase phase) {
+        return timers[phase.ordinal()];
+    }
+
+    public static long getCount(Counter counter) {
+        return counters[counter.ordinal()].get();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram timer : timers) {
+            timer.reset();
+        }
+        for (AtomicLong counter : counters) {
+            counter.set(0);
+        }
+    }
+
+    // Prints every phase that ran, in microseconds, then the counters
+    public static void report(PrintStream out) {
+        out.printf("%-16s %10s %10s %10s %10s %10s%n", "Phase (us)", "count", "mean", "p50", "p99", "max");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram timer = timers[phase.ordinal()];
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            boolean partOfUpdate = phase.ordinal() > Phase.UPDATE.ordinal() && phase != Phase.WRITE_OUTCOME;
+            out.printf("%-16s %10d %10.2f %10.2f %10.2f %10.2f%n",
+                    (partOfUpdate ? "  " : "") + phase.name().toLowerCase(), timer.getCount(), timer.getMean() / 1e3,
+                    timer.getPercentile(0.50) / 1e3, timer.getPercentile(0.99) / 1e3, timer.getMax() / 1e3);
+        }
+        for (Counter counter : Counter.values()) {
+            out.printf("%-16s %10d%n", counter.name().toLowerCase(), getCount(counter));
+        }
+    }
+}
+
+@Name("jumper.TurnPhase")
+@Label("Turn Phase")
+@Category("Jumper")
+@StackTrace(false)
+class TurnPhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+}
+
+@Name("jumper.GameEvent")
+@Label("Game Event")
+@Category("Jumper")
+@StackTrace(false)
+class GameEvent extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Building")
+    int position;
+}
@@ -0,0 +1,43 @@
+import java.util.*;
+
+// The random generator of one game. It draws exactly the same numbers as java.util.Random
+// with the same seed, but keeps its 48-bit state in a plain field that can be read and
+// restored, so a game saved in a GameSnapshot resumes with the same future draws.
+// Unlike Random it is not thread-safe; a game is only ever played by one thread at a time.
+// nextGaussian's cached second value is not part of the state, and the game never uses it.
+public class GameRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public GameRandom() {
+        this(new Random().nextLong());
+    }
+
+    public GameRandom(long seed) {
+        super(seed); // Random's constructor calls setSeed below
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.*;
+
+// Draws the game interface into one reusable buffer and writes the whole frame at once.
+// Only a viewport of buildings around the player is drawn, so a frame costs the same
+// however long the world is and however tall its buildings grow.
+public class GameRenderer {
+    public static final int DEFAULT_VIEWPORT_WIDTH = 40;
+    public static final int DEFAULT_VIEWPORT_HEIGHT = 20;
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private final StringBuilder frame;
+
+    public GameRenderer() {
+        this(DEFAULT_VIEWPORT_WIDTH, DEFAULT_VIEWPORT_HEIGHT);
+    }
+
+    // viewportWidth is counted in buildings and viewportHeight in floors
+    public GameRenderer(int viewportWidth, int viewportHeight) {
+        if (viewportWidth < 1 || viewportHeight < 1) {
+            throw new IllegalArgumentException("Viewport must be at least one building wide and one floor high");
+        }
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+        frame = new StringBuilder((viewportWidth * 3 + NEW_LINE.length()) * viewportHeight + 512);
+    }
+
+    // Renders the frame and writes it to the stream in a single call
+    public void draw(World world, Player player, int numberOfTurnsPlayed, PrintStream out) {
+        out.print(render(world, player, numberOfTurnsPlayed));
+        out.flush();
+    }
+
+    // Renders the frame into the reusable buffer; the result is overwritten by the next call
+    public CharSequence render(World world, Player player, int numberOfTurnsPlayed) {
+        int position = player.getPosition();
+        frame.setLength(0);
+        frame.append("================== Jumper Game ==================").append(NEW_LINE);
+        frame.append("Player: ").append(player.getName()).append(NEW_LINE);
+        frame.append("Charge: ").append(player.getCharge()).append(NEW_LINE);
+        frame.append("Turn: ").append(numberOfTurnsPlayed).append(NEW_LINE);
+        frame.append("Current Building: ").append(position + 1).append(NEW_LINE);
+
+        // Choose the buildings to show, keeping the player in the middle where possible
+        int first = Math.max(0, Math.min(position - viewportWidth / 2, world.size() - viewportWidth));
+        int last = Math.min(world.size(), first + viewportWidth);
+        if (world.size() == ChunkedWorld.ENDLESS) {
+            frame.append("Buildings ").append(first + 1).append(" to ").append(last).append(" of an endless world").append(NEW_LINE);
+        } else if (first > 0 || last < world.size()) {
+            frame.append("Buildings ").append(first + 1).append(" to ").append(last)
+                    .append(" of ").append(world.size()).append(NEW_LINE);
+        }
+
+        // Choose the floors to show, keeping the player's roof in view
+        int maxBuildingHeight = 0;
+        for (int i = first; i < last; i++) {
+            maxBuildingHeight = Math.max(maxBuildingHeight, world.getHeight(i));
+        }
+        int topFloor = maxBuildingHeight;
+        if (topFloor >= viewportHeight && position >= first && position < last) {
+            int playerFloor = world.getHeight(position);
+            topFloor = Math.min(maxBuildingHeight, Math.max(viewportHeight - 1, playerFloor + viewportHeight / 2));
+        }
+        int bottomFloor = Math.max(0, topFloor - viewportHeight + 1);
+
+        // Display the buildings vertically
+        for (int floor = topFloor; floor >= bottomFloor; floor--) {
+            for (int i = first; i < last; i++) {
+                int height = world.getHeight(i);
+                if (height > floor) {
+                    frame.append("[ ]"); // Building block
+                } else if (height == floor) {
+                    frame.append(roof(world, i, position));
+                } else {
+                    frame.append("   "); // Empty space
+                }
+            }
+            frame.append(NEW_LINE);
+        }
+
+        frame.append("=============================================").append(NEW_LINE);
+        return frame;
+    }
+
+    private static String roof(World world, int index, int position) {
+        if (index == position) {
+            return "*P*"; // Player's position
+        } else if (world.hasExitPortal(index)) {
+            return "(E)"; // Exit portal
+        } else if (world.hasWeb(index)) {
+            return "(W)"; // Web trap
+        } else if (world.isFrozen(index)) {
+            return "FRZ"; // Frozen building
+        } else if (world.hasFuelCell(index)) {
+            return "(F)"; // Fuel cell
+        }
+        return "   ";
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Replays recorded games headlessly and checks that each one ends exactly as recorded.
+// Usage: java GameReplayer <journal file or directory of .jnl files>...
+// Exits with status 1 if any game doesn't match its recording.
+public class GameReplayer {
+
+    // Plays the journal's moves on its starting world with its seed, in its tick mode
+    public static Jumper replay(GameJournal journal) {
+        Jumper game = new Jumper(journal.getInitialWorld(), new Player(journal.getPlayerName()), journal.getSeed());
+        if (journal.usesParallelTick()) {
+            game.setParallelTick(new ParallelTick());
+        }
+        game.playHeadless(new ReplayMoveStrategy(journal), journal.getMoveCount());
+        return game;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> fileNames = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] journals = file.listFiles((dir, name) -> name.endsWith(".jnl"));
+            if (journals == null) {
+                fileNames.add(arg);
+            } else {
+                for (File journal : journals) {
+                    fileNames.add(journal.getPath());
+                }
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.out.println("Usage: java GameReplayer <journal file or directory>...");
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<String>> results = new ArrayList<>();
+        for (String fileName : fileNames) {
+            results.add(executor.submit(() -> check(fileName)));
+        }
+        int mismatches = 0;
+        for (Future<String> result : results) {
+            String problem = result.get();
+            if (problem != null) {
+                System.out.println(problem);
+                mismatches++;
+            }
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("Replayed %d games in %.2f s: %d matched, %d did not%n",
+                fileNames.size(), seconds, fileNames.size() - mismatches, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Returns a description of the problem, or null when the replay matches the recording
+    private static String check(String fileName) {
+        try {
+            GameJournal journal = GameJournal.read(fileName);
+            Jumper game = replay(journal);
+            if (journal.matches(game)) {
+                return null;
+            }
+            GameJournal replayed = new GameJournal(journal.getSeed(), journal.getPlayerName(), journal.getInitialWorld());
+            replayed.setParallelTick(journal.usesParallelTick());
+            replayed.finish(game);
+            return fileName + ": recorded " + journal.describeOutcome() + " but replay gave " + replayed.describeOutcome();
+        } catch (IOException e) {
+            return fileName + ": " + e.getMessage();
+        }
+    }
+}
+
+// Plays the moves stored in a journal, one per turn
+class ReplayMoveStrategy implements MoveStrategy {
+    private final GameJournal journal;
+
+    public ReplayMoveStrategy(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    public JumpDirection chooseJumpDirection(Jumper game, int maxJumpRange) {
+        return journal.getMove(game.getNumberOfTurnsPlayed());
+    }
+}
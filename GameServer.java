@@ -0,0 +1,443 @@
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Hosts many Building Jumper games at once over TCP, one session per connection.
+// No session has a thread of its own. The connections are non-blocking and shared out over a
+// few selector threads, one per core by default, and a session only runs when its player has
+// sent a whole line: the selector thread feeds the line to the session's Jumper, which plays
+// the turn, and sends the screen the turn printed. A session waiting for its player is just
+// its Jumper, its world and its channel, a few kilobytes of heap, so the number of sessions is
+// bounded by memory and file descriptors rather than by threads and their stacks.
+// Each selector thread has one console and one renderer that its sessions' games print through
+// in turn, and one buffer to read into and one to encode into. Output the socket doesn't take
+// at once is kept with the session, which stops reading until it has gone out.
+// All sessions start on copies of one layout and send their outcomes to one OutcomeSink.
+// Usage: java GameServer [port] [buildings file] [outcome file] [selector threads]
+// Play with: nc localhost 5050
+public class GameServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 5050;
+    private static final int BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_LINE_BYTES = 256;
+
+    private final ServerSocketChannel serverChannel;
+    private final World layout;
+    private final OutcomeSink outcomeSink;
+    private final SelectorLoop[] loops;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong finishedSessions = new AtomicLong();
+    private volatile boolean closed;
+
+    public GameServer(int port, World layout, OutcomeSink outcomeSink) throws IOException {
+        this(port, layout, outcomeSink, Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameServer(int port, World layout, OutcomeSink outcomeSink, int selectorThreads) throws IOException {
+        if (selectorThreads < 1) {
+            throw new IllegalArgumentException("A server needs at least one selector thread: " + selectorThreads);
+        }
+        this.layout = layout;
+        this.outcomeSink = outcomeSink;
+        serverChannel = ServerSocketChannel.open();
+        loops = new SelectorLoop[selectorThreads];
+        try {
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            for (int i = 0; i < selectorThreads; i++) {
+                loops[i] = new SelectorLoop("game-selector-" + (i + 1));
+            }
+        } catch (IOException e) {
+            closeAll();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getSelectorThreads() {
+        return loops.length;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public long getFinishedSessions() {
+        return finishedSessions.get();
+    }
+
+    // Accepts connections until the server is closed, handing them to the selector threads in turn
+    public void serve() throws IOException {
+        for (SelectorLoop loop : loops) {
+            loop.thread.start();
+        }
+        int next = 0;
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                break; // closed while waiting
+            }
+            loops[next].add(channel);
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    // Stops accepting, drops the games still being played and waits for the selector threads
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        for (SelectorLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+        try {
+            for (SelectorLoop loop : loops) {
+                if (loop != null && loop.thread.isAlive()) {
+                    loop.thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeAll();
+    }
+
+    private void closeAll() throws IOException {
+        serverChannel.close();
+        for (SelectorLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.close();
+            }
+        }
+    }
+
+    // One selector thread and everything its sessions share
+    private final class SelectorLoop implements Runnable {
+        final Selector selector = Selector.open();
+        final Thread thread;
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        final OutputConsole console = new OutputConsole();
+        final GameRenderer renderer = new GameRenderer();
+
+        SelectorLoop(String name) throws IOException {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void add(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = accepted.poll()) != null) {
+                        open(channel);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Session session = (Session) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                session.writePending();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                session.read();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            session.close(); // the player disconnected or the game failed; it is simply dropped
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                // The server is closing
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Session) key.attachment()).close();
+                }
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        // Already gone
+                    }
+                }
+            }
+        }
+
+        private void open(SocketChannel channel) {
+            activeSessions.incrementAndGet();
+            Session session = null;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                session = new Session(this, channel);
+                session.start();
+            } catch (IOException | RuntimeException e) {
+                if (session != null) {
+                    session.close();
+                } else {
+                    try {
+                        channel.close();
+                    } catch (IOException closeFailure) {
+                        // Already gone
+                    }
+                    activeSessions.decrementAndGet();
+                    finishedSessions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    // One connection and its game, played a line at a time on its selector thread
+    private final class Session {
+        private final SelectorLoop loop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final Jumper game = new Jumper();
+        private byte[] partialLine; // the start of a line the player hasn't finished sending
+        private int partialLength;
+        private ByteBuffer pending; // output the socket hasn't taken yet
+        private boolean named;
+        private boolean over;
+        private boolean closed;
+
+        Session(SelectorLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+            game.setLayout(layout);
+            game.setOutcomeSink(outcomeSink);
+            game.setConsole(loop.console);
+            game.setRenderer(loop.renderer);
+        }
+
+        // Welcome, then the name prompt, as startGame begins
+        void start() throws IOException {
+            game.printWelcome();
+            game.setUpWorld();
+            game.askForName();
+            send();
+        }
+
+        // Reads what the player sent and plays every whole line in it
+        void read() throws IOException {
+            ByteBuffer input = loop.input;
+            input.clear();
+            if (channel.read(input) < 0) {
+                close(); // the player left mid-game
+                return;
+            }
+            input.flip();
+            int lineStart = input.position();
+            while (input.hasRemaining() && !over) {
+                if (input.get() != '\n') {
+                    continue;
+                }
+                int lineEnd = input.position() - 1;
+                String line;
+                if (partialLength > 0) {
+                    keepPartial(input, lineStart, lineEnd);
+                    line = decode(partialLine, partialLength);
+                    partialLength = 0;
+                } else {
+                    byte[] bytes = new byte[lineEnd - lineStart];
+                    input.get(lineStart, bytes);
+                    line = decode(bytes, bytes.length);
+                }
+                play(line);
+                lineStart = input.position();
+            }
+            if (!over) {
+                keepPartial(input, lineStart, input.limit());
+            }
+            send();
+        }
+
+        private void keepPartial(ByteBuffer input, int start, int end) throws IOException {
+            int length = end - start;
+            if (length == 0) {
+                return;
+            }
+            if (partialLength + length > MAX_LINE_BYTES) {
+                throw new IOException("Line too long");
+            }
+            if (partialLine == null) {
+                partialLine = new byte[MAX_LINE_BYTES];
+            }
+            input.get(start, partialLine, partialLength, length);
+            partialLength += length;
+        }
+
+        private String decode(byte[] bytes, int length) {
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // One line of input: the name first, then a move per turn, as startGame reads them
+        private void play(String line) {
+            if (!named) {
+                named = game.acceptName(line);
+                if (named) {
+                    showTurn();
+                }
+                return;
+            }
+            int maxJumpRange = game.getWorld().getHeight(game.getPlayer().getPosition());
+            JumpDirection jumpDirection = game.acceptJumpDirection(line, maxJumpRange);
+            if (jumpDirection == null) {
+                game.askForJumpDirection();
+                return;
+            }
+            game.playTurn(jumpDirection, maxJumpRange);
+            if (game.getPlayer().getHasWon() || game.getPlayer().getHasLost()) {
+                game.finishGame(null);
+                over = true;
+            } else {
+                showTurn();
+            }
+        }
+
+        private void showTurn() {
+            game.displayGameInterface(null);
+            game.askForJumpDirection();
+        }
+
+        // Sends what the game printed, keeping whatever the socket won't take now
+        private void send() throws IOException {
+            CharBuffer text = CharBuffer.wrap(loop.console.getText());
+            ByteBuffer output = loop.output;
+            CharsetEncoder encoder = loop.encoder.reset();
+            boolean more = true;
+            while (more) {
+                output.clear();
+                more = encoder.encode(text, output, true).isOverflow();
+                output.flip();
+                if (pending == null) {
+                    channel.write(output);
+                }
+                if (output.hasRemaining()) {
+                    keepPending(output);
+                }
+            }
+            loop.console.clear();
+            afterWrite();
+        }
+
+        private void keepPending(ByteBuffer output) {
+            if (pending == null) {
+                pending = ByteBuffer.allocate(Math.max(output.remaining(), 1024));
+            } else if (pending.remaining() < output.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + output.remaining()));
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            pending.put(output);
+        }
+
+        void writePending() throws IOException {
+            pending.flip();
+            channel.write(pending);
+            if (pending.hasRemaining()) {
+                pending.compact();
+            } else {
+                pending = null;
+            }
+            afterWrite();
+        }
+
+        // Reads again once everything has gone out, and ends the session after the last screen
+        private void afterWrite() {
+            if (pending != null) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (over) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+            activeSessions.decrementAndGet();
+            finishedSessions.incrementAndGet();
+        }
+    }
+
+    // Collects what a game prints while its selector thread plays a line, for the session to send.
+    // Sessions never read from it; their input arrives through the selector.
+    private static final class OutputConsole implements GameConsole {
+        private final StringBuilder text = new StringBuilder(BUFFER_BYTES);
+
+        CharSequence getText() {
+            return text;
+        }
+
+        void clear() {
+            text.setLength(0);
+        }
+
+        public String readLine() {
+            throw new UnsupportedOperationException("A session's input arrives through its selector");
+        }
+
+        public void print(CharSequence text) {
+            this.text.append(text);
+        }
+
+        public void println(CharSequence text) {
+            this.text.append(text).append(System.lineSeparator());
+        }
+
+        public void println() {
+            text.append(System.lineSeparator());
+        }
+
+        public void flush() {
+            // Sent by the session once the line has been played
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        String fileName = args.length > 1 ? args[1] : "buildings.txt";
+        String outcomeFileName = args.length > 2 ? args[2] : "outcome.bin";
+        int selectorThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        World layout = WorldLoader.load(fileName);
+        try (OutcomeSink outcomeSink = new OutcomeSink(outcomeFileName);
+             GameServer server = new GameServer(port, layout, outcomeSink, selectorThreads)) {
+            System.out.printf("Serving Building Jumper on port %d with %d selector threads, outcomes to %s%n",
+                    server.getPort(), server.getSelectorThreads(), outcomeFileName);
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// A checkpoint of a running game in a compact binary form, so an idle session can be parked
+// as a small byte array and resumed later exactly where it was, with the same future draws.
+// It holds everything a turn can read or change:
+//   magic (int), version (byte), game flags (byte: 1 quiet), random state (long),
+//   turns played (int), fuel cells found (int), exit portal index (int),
+//   player name length (short) and UTF-8 bytes, position (int), charge (int),
+//   player flags (byte: 1 won, 2 lost),
+//   world kind (byte: 0 list of Buildings, 1 ArrayWorld, 2 ChunkedWorld), building count (int),
+//   then per building height (short), previous height (short), flags (byte: 1 portal,
+//   2 fuel cell, 4 web, 8 frozen).
+// An endless ChunkedWorld is saved as its settings and resident chunks instead of a count and
+// buildings (see ChunkedWorld.writeTo); evicted chunks are generated again from the seed.
+// The default 15-building world takes about 120 bytes. The console, outcome sink and journal
+// belong to the session rather than the game and are not saved.
+public final class GameSnapshot {
+    public static final int MAGIC = 0x4A4D5053; // "JMPS"
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 1 + 1 + 8 + 4 + 4 + 4 + 2 + 4 + 4 + 1 + 1 + 4;
+    private static final int BUILDING_BYTES = 2 + 2 + 1;
+
+    private GameSnapshot() {
+    }
+
+    public static byte[] save(Jumper game) {
+        byte[] name = game.getPlayer().getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Player name too long for a snapshot: " + name.length + " bytes");
+        }
+        World world = game.getWorld();
+        int worldBytes = world instanceof ChunkedWorld
+                ? ((ChunkedWorld) world).snapshotBytes() - 4 : world.size() * BUILDING_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + name.length + worldBytes);
+        write(game, name, buffer);
+        return buffer.array();
+    }
+
+    private static void write(Jumper game, byte[] name, ByteBuffer buffer) {
+        Player player = game.getPlayer();
+        World world = game.getWorld();
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (game.isQuiet() ? 1 : 0));
+        buffer.putLong(game.getRandom().getState());
+        buffer.putInt(game.getNumberOfTurnsPlayed());
+        buffer.putInt(game.getNumberOfFuelCellsFound());
+        buffer.putInt(game.getExitPortalBuildingIndex());
+
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(player.getPosition());
+        buffer.putInt(player.getCharge());
+        buffer.put((byte) ((player.getHasWon() ? 1 : 0) | (player.getHasLost() ? 2 : 0)));
+
+        if (world instanceof ChunkedWorld) {
+            buffer.put((byte) 2);
+            ((ChunkedWorld) world).writeTo(buffer);
+            return;
+        }
+        buffer.put((byte) (world instanceof ListWorld ? 0 : 1));
+        buffer.putInt(world.size());
+        for (int i = 0; i < world.size(); i++) {
+            buffer.putShort(toShort(world.getHeight(i)));
+            buffer.putShort(toShort(world.getPreviousHeight(i)));
+            buffer.put((byte) ((world.hasExitPortal(i) ? 1 : 0)
+                    | (world.hasFuelCell(i) ? 2 : 0)
+                    | (world.hasWeb(i) ? 4 : 0)
+                    | (world.isFrozen(i) ? 8 : 0)));
+        }
+    }
+
+    // A ListWorld's buildings take any int height, but a snapshot only has room for a short
+    private static short toShort(int height) {
+        if (height < 0 || height > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Building height out of range: " + height);
+        }
+        return (short) height;
+    }
+
+    // Rebuilds the game; give it a console or outcome sink before playing it with startGame's loop
+    public static Jumper restore(byte[] snapshot) throws IOException {
+        try {
+            return read(ByteBuffer.wrap(snapshot));
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Game snapshot is truncated");
+        }
+    }
+
+    private static Jumper read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a game snapshot");
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported game snapshot version " + version);
+        }
+        boolean quiet = (buffer.get() & 1) != 0;
+        long randomState = buffer.getLong();
+        int numberOfTurnsPlayed = buffer.getInt();
+        int numberOfFuelCellsFound = buffer.getInt();
+        int exitPortalBuildingIndex = buffer.getInt();
+
+        int nameLength = buffer.getShort();
+        if (nameLength < 0 || nameLength > buffer.remaining()) {
+            throw new IOException("Game snapshot is damaged: player name of " + nameLength + " bytes");
+        }
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        Player player = new Player(new String(name, StandardCharsets.UTF_8));
+        player.setPosition(buffer.getInt());
+        player.setCharge(buffer.getInt());
+        int playerFlags = buffer.get();
+        player.setHasWon((playerFlags & 1) != 0);
+        player.setHasLost((playerFlags & 2) != 0);
+
+        int kind = buffer.get();
+        World world;
+        if (kind == 2) {
+            world = ChunkedWorld.readFrom(buffer);
+        } else {
+            int size = buffer.getInt();
+            if (size < 0 || size > buffer.remaining() / BUILDING_BYTES) {
+                throw new EOFException("Game snapshot is truncated");
+            }
+            world = kind == 0 ? readBuildings(buffer, size) : readArrayWorld(buffer, size);
+        }
+
+        Jumper game = new Jumper(world, exitPortalBuildingIndex, player, numberOfTurnsPlayed, numberOfFuelCellsFound);
+        game.getRandom().setState(randomState);
+        game.setQuiet(quiet);
+        return game;
+    }
+
+    private static World readBuildings(ByteBuffer buffer, int size) {
+        List<Building> buildings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int height = buffer.getShort();
+            int previousHeight = buffer.getShort();
+            int flags = buffer.get();
+            Building building = new Building(height, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, (flags & 8) != 0);
+            building.setPreviousHeight(previousHeight);
+            buildings.add(building);
+        }
+        return new ListWorld(buildings);
+    }
+
+    // Fills the arrays directly, so the position indexes are built in one pass at the end
+    private static World readArrayWorld(ByteBuffer buffer, int size) {
+        short[] heights = new short[size];
+        short[] previousHeights = new short[size];
+        BitSet exitPortals = new BitSet(size);
+        BitSet fuelCells = new BitSet(size);
+        BitSet webs = new BitSet(size);
+        BitSet frozen = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            heights[i] = buffer.getShort();
+            previousHeights[i] = buffer.getShort();
+            int flags = buffer.get();
+            if ((flags & 1) != 0) {
+                exitPortals.set(i);
+            }
+            if ((flags & 2) != 0) {
+                fuelCells.set(i);
+            }
+            if ((flags & 4) != 0) {
+                webs.set(i);
+            }
+            if ((flags & 8) != 0) {
+                frozen.set(i);
+            }
+        }
+        return new ArrayWorld(heights, previousHeights, exitPortals, fuelCells, webs, frozen);
+    }
+
+    public static void write(Jumper game, String fileName) throws IOException {
+        try (OutputStream out = new FileOutputStream(fileName)) {
+            out.write(save(game));
+        }
+    }
+
+    public static Jumper read(String fileName) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            return restore(in.readAllBytes());
+        }
+    }
+
+    // Plays games part way, parks each one in a snapshot at a turn anywhere in its length, resumes
+    // it and checks it ends exactly as the same game played straight through. Saving and restoring
+    // are timed by the saveSnapshot and restoreSnapshot JMH benchmarks.
+    // Exits with status 1 if any resumed game ended differently; mvn verify runs it as a gate.
+    // Usage: java GameSnapshot [games] [buildings file]
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        String fileName = args.length > 1 ? args[1] : "buildings.txt";
+        World layout = WorldLoader.load(fileName);
+        MoveStrategy strategy = new GreedyMoveStrategy();
+
+        int mismatches = 0;
+        int latestPark = 0;
+        for (int i = 0; i < games; i++) {
+            Jumper straight = new Jumper(layout.copy(), new Player("p" + i), i);
+            straight.playHeadless(strategy, Integer.MAX_VALUE);
+
+            // Park anywhere from the first turn to the last, mid-game and late games included
+            int turns = straight.getNumberOfTurnsPlayed();
+            int parkTurn = (int) ((i * 0x9E3779B97F4A7C15L >>> 1) % (turns + 1));
+            latestPark = Math.max(latestPark, parkTurn);
+            Jumper parked = new Jumper(layout.copy(), new Player("p" + i), i);
+            parked.playHeadless(strategy, parkTurn);
+            Jumper resumed = restore(save(parked));
+            resumed.playHeadless(strategy, Integer.MAX_VALUE);
+            if (GameJournal.checksum(resumed) != GameJournal.checksum(straight)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Resumed %d games parked at turns 0 to %d, %d ended differently from playing straight through%n",
+                games, latestPark, mismatches);
+
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+// Heads for the exit portal when the jump is affordable and doesn't land on a web or a frozen building
+public class GreedyMoveStrategy implements MoveStrategy {
+
+    public JumpDirection chooseJumpDirection(Jumper game, int maxJumpRange) {
+        int position = game.getPlayer().getPosition();
+        int exitPortalIndex = game.getExitPortalBuildingIndex();
+
+        JumpDirection towardsExit = exitPortalIndex < position ? JumpDirection.LEFT : JumpDirection.RIGHT;
+        JumpDirection awayFromExit = exitPortalIndex < position ? JumpDirection.RIGHT : JumpDirection.LEFT;
+
+        if (exitPortalIndex != position && isSafeJump(game, towardsExit, maxJumpRange)) {
+            return towardsExit;
+        }
+        if (isSafeJump(game, JumpDirection.STAY, maxJumpRange)) {
+            return JumpDirection.STAY;
+        }
+        if (isSafeJump(game, awayFromExit, maxJumpRange)) {
+            return awayFromExit;
+        }
+        // Nothing is safe, so take the cheapest allowed jump
+        JumpDirection cheapest = JumpDirection.STAY;
+        if (isCheaperJump(game, towardsExit, cheapest, maxJumpRange)) {
+            cheapest = towardsExit;
+        }
+        if (isCheaperJump(game, awayFromExit, cheapest, maxJumpRange)) {
+            cheapest = awayFromExit;
+        }
+        return cheapest;
+    }
+
+    private boolean isCheaperJump(Jumper game, JumpDirection jumpDirection, JumpDirection cheapest, int maxJumpRange) {
+        return game.isJumpAllowed(jumpDirection, maxJumpRange)
+                && jumpCost(game, jumpDirection, maxJumpRange) < jumpCost(game, cheapest, maxJumpRange);
+    }
+
+    private boolean isSafeJump(Jumper game, JumpDirection jumpDirection, int maxJumpRange) {
+        if (!game.isJumpAllowed(jumpDirection, maxJumpRange)) {
+            return false;
+        }
+        World world = game.getWorld();
+        int target = game.calculateNewPosition(jumpDirection, maxJumpRange);
+        return jumpCost(game, jumpDirection, maxJumpRange) < game.getPlayer().getCharge()
+                && !world.hasWeb(target) && !world.isFrozen(target);
+    }
+
+    private int jumpCost(Jumper game, JumpDirection jumpDirection, int maxJumpRange) {
+        World world = game.getWorld();
+        int target = game.calculateNewPosition(jumpDirection, maxJumpRange);
+        return Math.abs(world.getHeight(game.getPlayer().getPosition()) - world.getHeight(target)) + 1;
+    }
+}
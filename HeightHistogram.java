@@ -0,0 +1,55 @@
+import java.util.*;
+
+// Counts how many buildings stand at each height, so the tallest height is known
+// while heights change without scanning every building again.
+public class HeightHistogram {
+    private int[] counts;
+    private int maxHeight;
+
+    public HeightHistogram() {
+        counts = new int[16];
+        maxHeight = 0;
+    }
+
+    // Recounts the heights of the world's buildings, reusing the counts array when it is big enough
+    public void reset(World world) {
+        reset(world, 0, world.size());
+    }
+
+    // Recounts only the buildings from start up to but not including end
+    public void reset(World world, int start, int end) {
+        Arrays.fill(counts, 0);
+        maxHeight = 0;
+        for (int i = start; i < end; i++) {
+            add(world.getHeight(i));
+        }
+    }
+
+    public void add(int height) {
+        if (height >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(height + 1, counts.length * 2));
+        }
+        counts[height]++;
+        if (height > maxHeight) {
+            maxHeight = height;
+        }
+    }
+
+    public void remove(int height) {
+        counts[height]--;
+        // The maximum only ever moves down here, so the total work over a sweep is bounded by the tallest height
+        while (maxHeight > 0 && counts[maxHeight] == 0) {
+            maxHeight--;
+        }
+    }
+
+    // Moves one building from its old height to its new height
+    public void changeHeight(int oldHeight, int newHeight) {
+        add(newHeight);
+        remove(oldHeight);
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+}
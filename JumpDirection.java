@@ -0,0 +1,68 @@
+// The three moves a player can make on a turn. The ordinals are the codes the game stores
+// moves as (GameJournal's two-bit moves, JumperEnv's actions), so the order must not change.
+public enum JumpDirection {
+    LEFT("left"),
+    RIGHT("right"),
+    STAY("stay");
+
+    // values() copies its array on every call, so the turn loop indexes this one instead
+    private static final JumpDirection[] DIRECTIONS = values();
+
+    private final String word;
+
+    JumpDirection(String word) {
+        this.word = word;
+    }
+
+    // The word the player types for this move
+    public String getWord() {
+        return word;
+    }
+
+    // How far along the buildings this move goes for a jump range: -range, range or 0
+    public int offset(int range) {
+        return this == LEFT ? -range : this == RIGHT ? range : 0;
+    }
+
+    @Override
+    public String toString() {
+        return word;
+    }
+
+    public static JumpDirection forCode(int code) {
+        return DIRECTIONS[code];
+    }
+
+    public static int count() {
+        return DIRECTIONS.length;
+    }
+
+    // Reads a typed move in any case and with surrounding spaces, without copying the line;
+    // returns null for anything else
+    public static JumpDirection parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        for (JumpDirection direction : DIRECTIONS) {
+            String word = direction.word;
+            if (end - start == word.length() && matches(text, start, word)) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(CharSequence text, int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,17 +2,26 @@ import java.io.*;
 import java.util.*;
 
 public class Jumper {
-    private List<Building> buildings;
+    private World world;
     private int exitPortalBuildingIndex;
-    private Random random;
+    private GameRandom random;
     private Player player;
     private int numberOfTurnsPlayed;
     private int numberOfFuelCellsFound;
+    private boolean quiet;
+    private HeightHistogram heightHistogram = new HeightHistogram();
+    private GameRenderer renderer = new GameRenderer();
+    private OutcomeSink outcomeSink;
+    private GameJournal journal;
+    private String journalFileName;
+    private GameConsole console = GameConsole.system();
+    private World layout;
+    private ParallelTick parallelTick;
 
     // Default constructor
     public Jumper() {
-        buildings = new ArrayList<>();
-        random = new Random();
+        world = new ArrayWorld(0);
+        random = new GameRandom();
         exitPortalBuildingIndex = -1;
         numberOfTurnsPlayed = 0;
         numberOfFuelCellsFound = 0;
@@ -20,132 +29,294 @@ public class Jumper {
 
     // Non-default constructor
     public Jumper(List<Building> buildings, int exitPortalBuildingIndex, Player player, int numberOfTurnsPlayed, int numberOfFuelCellsFound) {
-        this.buildings = buildings;
+        this(new ListWorld(buildings), exitPortalBuildingIndex, player, numberOfTurnsPlayed, numberOfFuelCellsFound);
+    }
+
+    // Non-default constructor for any world, such as a compact ArrayWorld
+    public Jumper(World world, int exitPortalBuildingIndex, Player player, int numberOfTurnsPlayed, int numberOfFuelCellsFound) {
+        this.world = world;
         this.exitPortalBuildingIndex = exitPortalBuildingIndex;
         this.player = player;
         this.numberOfTurnsPlayed = numberOfTurnsPlayed;
         this.numberOfFuelCellsFound = numberOfFuelCellsFound;
-        random = new Random();
+        random = new GameRandom();
     }
 
-    public void startGame() {
-        Scanner scanner = new Scanner(System.in);
-        
-        // Print initial game message
-        System.out.println("=========================================================================================");
-        System.out.println("|                         WELCOME TO NOWHERE WHERE NO ONE ESCAPES                       |");
-        System.out.println("| You are quested to try and escape using on the jumper device available in Nowhere     |");
-        System.out.println("| The cost of this device isn't free! But let's discuss payment if you manage to escape |");
-        System.out.println("| Remember the following if you wish to survive:                                        |");
-        System.out.println("| - the device will only allow you to jump short distances                              |");
-        System.out.println("| - the jump distance is based on the height difference of the buildings jumped         |");
-        System.out.println("| - the building heights change frequently over time                                    |");
-        System.out.println("| - fuel cells found on the rooftops can refuel the device for a short while            |");
-        System.out.println("| - stay far away from the frozen buildings                                             |");
-        System.out.println("| - look out for the Nowehre police webs                                                |");
-        System.out.println("| Lastly the Underground Guild takes no responsibility and provides no guarantees       |");
-        System.out.println("| Should you survive, we will come to collet! Good Luck!                                |");
-        System.out.println(); // Empty line
+    // Headless constructor: no console output and a seeded random generator for this game only
+    public Jumper(World world, Player player, long seed) {
+        this(world, findExitPortalIndex(world), player, 0, 0);
+        random = new GameRandom(seed);
+        quiet = true;
+    }
 
-        // Initialize the game & read building from buidlngs.txt
-        readBuildingsFromFile();
-        initializePlayer(scanner);
+    public void startGame() {
+        printWelcome();
+        setUpGame();
 
         // Gets the exit portal building from 'buildings' using the exitPortalBuildingIndex
-        Building exitPortalBuilding = buildings.get(exitPortalBuildingIndex);
+        // (an endless world may not have generated a portal yet)
+        Building exitPortalBuilding = exitPortalBuildingIndex >= 0 ? world.getBuilding(exitPortalBuildingIndex) : null;
         
         // Start the game loop
         //while (!(player.isGameOver(exitPortalBuilding, buildings)))
         while (!player.getHasLost() && !player.getHasWon()) {
             // Display buildings and game interface
+            long startTime = GameMetrics.start();
             displayGameInterface(exitPortalBuilding);
+            GameMetrics.stop(GameMetrics.Phase.DISPLAY, startTime);
 
             // Calculate jump range jump direction and cost of the jump
-            int maxJumpRange = buildings.get(player.getPosition()).getHeight();
-            String jumpDirection = promptForJumpDirection(maxJumpRange);
-            performJump(jumpDirection, maxJumpRange);
+            int maxJumpRange = world.getHeight(player.getPosition());
+            startTime = GameMetrics.start();
+            JumpDirection jumpDirection = promptForJumpDirection(maxJumpRange);
+            GameMetrics.stop(GameMetrics.Phase.PROMPT, startTime);
+            playTurn(jumpDirection, maxJumpRange);
+        }
+        finishGame(exitPortalBuilding);
+    }
 
-            // Update game conditions
-            updateGameConditions();
+    // startGame's welcome, setup and ending are split out so RealTimeGame can run its own turns between them
+    void printWelcome() {
+        // Print initial game message
+        console.println("=========================================================================================");
+        console.println("|                         WELCOME TO NOWHERE WHERE NO ONE ESCAPES                       |");
+        console.println("| You are quested to try and escape using on the jumper device available in Nowhere     |");
+        console.println("| The cost of this device isn't free! But let's discuss payment if you manage to escape |");
+        console.println("| Remember the following if you wish to survive:                                        |");
+        console.println("| - the device will only allow you to jump short distances                              |");
+        console.println("| - the jump distance is based on the height difference of the buildings jumped         |");
+        console.println("| - the building heights change frequently over time                                    |");
+        console.println("| - fuel cells found on the rooftops can refuel the device for a short while            |");
+        console.println("| - stay far away from the frozen buildings                                             |");
+        console.println("| - look out for the Nowehre police webs                                                |");
+        console.println("| Lastly the Underground Guild takes no responsibility and provides no guarantees       |");
+        console.println("| Should you survive, we will come to collet! Good Luck!                                |");
+        console.println(); // Empty line
+    }
+
+    void setUpGame() {
+        setUpWorld();
+        initializePlayer();
+
+        // A recorded game needs a known seed so it can be replayed
+        if (journalFileName != null) {
+            startRecording(new Random().nextLong());
+        }
+    }
 
-            // Increment the turn counter
-            numberOfTurnsPlayed++;
+    // setUpGame's world and name steps are split out too, so GameServer can play a session a
+    // line of input at a time instead of waiting on readLine
+    void setUpWorld() {
+        // Initialize the game & read building from buidlngs.txt
+        if (layout != null) {
+            world = layout.copy();
+            exitPortalBuildingIndex = findExitPortalIndex(world);
+        } else {
+            readBuildingsFromFile();
         }
+    }
+
+    void finishGame(Building exitPortalBuilding) {
         // Display buildings and game interface
         displayGameInterface(exitPortalBuilding);
         // Display game outcome and stats
         displayOutcome();
 
         // Write final stats to outcome.txt
+        long startTime = GameMetrics.start();
         writeOutcomeStats();
+        GameMetrics.stop(GameMetrics.Phase.WRITE_OUTCOME, startTime);
+
+        // Save the recording of the game
+        if (journal != null && journalFileName != null) {
+            journal.finish(this);
+            try {
+                journal.write(journalFileName);
+            } catch (IOException e) {
+                console.println("An error occurred while writing the game journal to " + journalFileName);
+            }
+        }
+        console.flush();
+    }
+
+    // Plays startGame through this console instead of the terminal
+    public void setConsole(GameConsole console) {
+        this.console = console;
+    }
+
+    GameConsole getConsole() {
+        return console;
+    }
+
+    // Starts games on a copy of this world instead of reading buildings.txt every time
+    public void setLayout(World layout) {
+        this.layout = layout;
+    }
+
+    // Draws frames with a renderer shared with other games played on the same thread
+    public void setRenderer(GameRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    // Updates the heights of worlds bigger than a chunk on all cores from now on; null for one thread
+    public void setParallelTick(ParallelTick parallelTick) {
+        this.parallelTick = parallelTick;
+    }
+
+    // Records the next game started with startGame into the given journal file
+    public void recordTo(String fileName) {
+        journalFileName = fileName;
+    }
+
+    // Reseeds the random generator and records every move from now on; call before the first turn
+    public GameJournal startRecording(long seed) {
+        random = new GameRandom(seed);
+        journal = new GameJournal(seed, player.getName(), world);
+        journal.setParallelTick(parallelTick != null);
+        return journal;
+    }
+
+    // Plays a whole game without console I/O, asking the strategy for every move
+    public void playHeadless(MoveStrategy strategy, int maxTurns) {
+        while (!player.getHasLost() && !player.getHasWon() && numberOfTurnsPlayed < maxTurns) {
+            int maxJumpRange = world.getHeight(player.getPosition());
+            JumpDirection jumpDirection = strategy.chooseJumpDirection(this, maxJumpRange);
+            playTurn(jumpDirection, maxJumpRange);
+        }
+    }
+
+    // Starts the game over with a new seed on its own world, which the caller has already put
+    // back to the starting layout. Allocates nothing, so an agent can play episode after episode.
+    void restart(long seed) {
+        random.setSeed(seed);
+        exitPortalBuildingIndex = findExitPortalIndex(world);
+        numberOfTurnsPlayed = 0;
+        numberOfFuelCellsFound = 0;
+        player.reset();
+    }
+
+    // Brings the counters up to a turn played elsewhere, as StateDecoder does from a delta
+    void setProgress(int numberOfTurnsPlayed, int numberOfFuelCellsFound, int exitPortalBuildingIndex) {
+        this.numberOfTurnsPlayed = numberOfTurnsPlayed;
+        this.numberOfFuelCellsFound = numberOfFuelCellsFound;
+        this.exitPortalBuildingIndex = exitPortalBuildingIndex;
+    }
+
+    // Lets the world move on for a turn while the player stays put without using the jumper,
+    // as in a real-time game when no move arrived in time. The player doesn't land again, so a
+    // web, freeze or fuel cell on their building only counts when they next move onto one.
+    // Not recorded in a journal.
+    public void idleTurn() {
+        tickWorld();
+    }
+
+    // Jumps, updates the game conditions and increments the turn counter. Once the world's
+    // buffers have grown to size, a turn allocates nothing; AllocationCheck holds it to that.
+    public void playTurn(JumpDirection jumpDirection, int maxJumpRange) {
+        if (journal != null) {
+            journal.addMove(jumpDirection);
+        }
+        long startTime = GameMetrics.start();
+        performJump(jumpDirection, maxJumpRange);
+        GameMetrics.stop(GameMetrics.Phase.JUMP, startTime);
+
+        // Update game conditions
+        startTime = GameMetrics.start();
+        updateGameConditions();
+        GameMetrics.stop(GameMetrics.Phase.UPDATE, startTime);
+
+        // Increment the turn counter
+        numberOfTurnsPlayed++;
     }
 
     private void readBuildingsFromFile() {
+        readBuildingsFromFile("buildings.txt");
+    }
+
+    public void readBuildingsFromFile(String fileName) {
         
         try {
-            // Reads each line of the file until it reaches the end (when readLine() returns null)
-            BufferedReader reader = new BufferedReader(new FileReader("buildings.txt"));
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                String[] buildingDetails = line.split(",");
-                int height = Integer.parseInt(buildingDetails[0]);
-                boolean hasExitPortal = Boolean.parseBoolean(buildingDetails[1]);
-                boolean hasFuelCell = Boolean.parseBoolean(buildingDetails[2]);
-                boolean hasWeb = Boolean.parseBoolean(buildingDetails[3]);
-                boolean isFrozen = Boolean.parseBoolean(buildingDetails[4]);
-
-                Building building = new Building(height, hasExitPortal, hasFuelCell, hasWeb, isFrozen);
-                buildings.add(building);
-
-                if (hasExitPortal) {
-                    exitPortalBuildingIndex = buildings.size() - 1;
-                }
-            }
+            // Loads the buildings straight into compact arrays; the file may be in the text
+            // format or in the packed binary format written by WorldLoader
+            world = WorldLoader.load(fileName);
+            exitPortalBuildingIndex = findExitPortalIndex(world);
         } catch (IOException e) {
             // Handle the exception, maybe terminate the game or use a default building configuration.
-            System.out.println("Error reading buildings from 'buildings.txt': " + e.getMessage());
+            console.println("Error reading buildings from '" + fileName + "': " + e.getMessage());
         }
     }
 
-    private void initializePlayer(Scanner scanner) {
-        System.out.print("Enter your name (between 3 and 12 characters): ");
-        String playerName = scanner.nextLine().trim();
-        while (playerName.length() < 3 || playerName.length() > 12) {
-            System.out.println("Invalid name length. Please enter a valid name.");
-            System.out.print("Enter your name (between 3 and 12 characters): ");
-            playerName = scanner.nextLine().trim();
+    // Finds the exit portal the same way readBuildingsFromFile does (the last one wins)
+    public static int findExitPortalIndex(World world) {
+        PositionSet exitPortals = world.getExitPortals();
+        return exitPortals.size() > 0 ? exitPortals.get(exitPortals.size() - 1) : -1;
+    }
+
+    private void initializePlayer() {
+        askForName();
+        while (!acceptName(console.readLine())) {
+            // acceptName has already asked again
+        }
+    }
+
+    void askForName() {
+        console.print("Enter your name (between 3 and 12 characters): ");
+    }
+
+    // Creates the player from the typed name, or asks again and returns false when it's too short or long
+    boolean acceptName(String line) {
+        String playerName = line.trim();
+        if (playerName.length() < 3 || playerName.length() > 12) {
+            console.println("Invalid name length. Please enter a valid name.");
+            askForName();
+            return false;
         }
         player = new Player(playerName);
+        return true;
     }
 
-    private String promptForJumpDirection(int maxJumpRange) {
-        Scanner scanner = new Scanner(System.in);
-        String jumpDirection = "";
+    private JumpDirection promptForJumpDirection(int maxJumpRange) {
+        JumpDirection jumpDirection = null;
     
-        while (!jumpDirection.equals("left") && !jumpDirection.equals("right") && !jumpDirection.equals("stay")) {
-            System.out.println("Choose your jump direction: left, right, or stay");
-            jumpDirection = scanner.nextLine().toLowerCase();
-        
-            if (jumpDirection.equals("left") && player.getPosition() - maxJumpRange < 0) {
-                System.out.println("Can't jump that far left. Choose again.");
-                jumpDirection = "";
-            } else if (jumpDirection.equals("right") && player.getPosition() + maxJumpRange >= buildings.size()) {
-                System.out.println("Can't jump that far right. Choose again.");
-                jumpDirection = "";
-            }
+        while (jumpDirection == null) {
+            askForJumpDirection();
+            jumpDirection = acceptJumpDirection(console.readLine(), maxJumpRange);
         }
         return jumpDirection;
     }
 
-    private void performJump(String jumpDirection, int maxJumpRange) {
+    void askForJumpDirection() {
+        console.println("Choose your jump direction: left, right, or stay");
+    }
+
+    // The typed jump direction, or null when it isn't one or goes past the end of the buildings
+    JumpDirection acceptJumpDirection(String line, int maxJumpRange) {
+        JumpDirection jumpDirection = JumpDirection.parse(line);
+        if (jumpDirection == JumpDirection.LEFT && !isJumpAllowed(jumpDirection, maxJumpRange)) {
+            console.println("Can't jump that far left. Choose again.");
+            jumpDirection = null;
+        } else if (jumpDirection == JumpDirection.RIGHT && !isJumpAllowed(jumpDirection, maxJumpRange)) {
+            console.println("Can't jump that far right. Choose again.");
+            jumpDirection = null;
+        }
+        return jumpDirection;
+    }
+
+    // A jump is allowed when it doesn't go past the first or last building
+    public boolean isJumpAllowed(JumpDirection jumpDirection, int maxJumpRange) {
+        if (jumpDirection == JumpDirection.LEFT) {
+            return player.getPosition() - maxJumpRange >= 0;
+        } else if (jumpDirection == JumpDirection.RIGHT) {
+            return maxJumpRange < world.size() - player.getPosition();
+        }
+        return true;
+    }
+
+    void performJump(JumpDirection jumpDirection, int maxJumpRange) {
         int currentPosition = player.getPosition();
         int newPosition = calculateNewPosition(jumpDirection, maxJumpRange);
         
-        Building currentBuilding = buildings.get(currentPosition);
-        Building newBuilding = buildings.get(newPosition);
-
-        int jumpCost = Math.abs(currentBuilding.getHeight() - newBuilding.getHeight()) + 1;
+        int jumpCost = Math.abs(world.getHeight(currentPosition) - world.getHeight(newPosition)) + 1;
         //System.out.println("Current buidling =  " + currentBuilding.getHeight() );
         //System.out.println("New buidling = " + newBuilding.getHeight() + "Position" + newPosition);
 
@@ -154,183 +325,235 @@ public class Jumper {
             player.consumeCharge(jumpCost);
             player.setPosition(newPosition);
         } else if (player.getCharge() == 0 || player.getCharge() < jumpCost) {
-            System.out.println();
-            System.out.println("Not enough charge to make the jump.");
+            printEvent("Not enough charge to make the jump.");
+            GameMetrics.count(GameMetrics.Counter.CHARGE_OUT, currentPosition);
             player.setHasLost(true);
         }
     }
 
-    private void updateGameConditions() {
-        Building currentBuilding = buildings.get(player.getPosition());
+    void updateGameConditions() {
+        int currentPosition = player.getPosition();
+        long startTime = GameMetrics.start();
+        world.focusOn(currentPosition);
     
         // Update game conditions: Web, Freeze, Exit Portal, Fuel Cell
-        if (currentBuilding.hasWeb() == true) {
-            System.out.println();
-            System.out.println("Oops! You landed on a web and got caught by the Nowhere Police.");
+        if (world.hasWeb(currentPosition) == true) {
+            printEvent("Oops! You landed on a web and got caught by the Nowhere Police.");
+            GameMetrics.count(GameMetrics.Counter.WEB_HIT, currentPosition);
             player.consumeCharge(5); // Deduct charge for being caught in the web
-            currentBuilding.setHasWeb(false); // Remove the web
+            world.setHasWeb(currentPosition, false); // Remove the web
         }
-        if (currentBuilding.isFrozen()) {
-            System.out.println();
-            System.out.println("The building is frozen. Skipping a turn...");
+        if (world.isFrozen(currentPosition)) {
+            printEvent("The building is frozen. Skipping a turn...");
+            GameMetrics.count(GameMetrics.Counter.FROZEN, currentPosition);
             player.consumeCharge(1); // Deduct charge for skipping a turn
         }
-        if (currentBuilding.hasExitPortal() && !currentBuilding.isFrozen()) {
+        if (world.hasExitPortal(currentPosition) && !world.isFrozen(currentPosition)) {
             player.setHasWon(true); // Set game over flag
         }
-        if (currentBuilding.hasFuelCell()) {
-            System.out.println();
-            System.out.println("You found a fuel cell on the roof. Your jumper device is recharged by 5 points.");
+        if (world.hasFuelCell(currentPosition)) {
+            printEvent("You found a fuel cell on the roof. Your jumper device is recharged by 5 points.");
+            GameMetrics.count(GameMetrics.Counter.FUEL_PICKUP, currentPosition);
             numberOfFuelCellsFound++; // Increment the number of fuel cells found
             player.rechargeDevice(5); // Recharge the player's device
-            currentBuilding.setHasFuelCell(false); // Remove the fuel cell
+            world.setHasFuelCell(currentPosition, false); // Remove the fuel cell
         }
 
         // Check battery for zero charge
         if (player.getCharge() == 0) {
-            System.out.println();
-            System.out.println("You have zero charge");
+            printEvent("You have zero charge");
+            GameMetrics.count(GameMetrics.Counter.CHARGE_OUT, currentPosition);
             player.setHasLost(true);
         }
+        GameMetrics.stop(GameMetrics.Phase.LANDING, startTime);
 
+        updateWorld();
+    }
+
+    // Moves the world on a turn without anyone landing, for SharedGame's world clock and idle turns
+    void tickWorld() {
+        long startTime = GameMetrics.start();
+        updateWorld();
+        GameMetrics.stop(GameMetrics.Phase.UPDATE, startTime);
+        numberOfTurnsPlayed++;
+    }
+
+    // The part of a turn that happens to the world whoever is on it: new fuel cells, heights,
+    // web and freeze
+    private void updateWorld() {
         // Check if fuel cells need to be placed
+        long startTime;
         if (numberOfTurnsPlayed >0 && numberOfTurnsPlayed % 3 == 0) {
+            startTime = GameMetrics.start();
             removeFuelCells();
             placeFuelCellsRandomly();
+            GameMetrics.stop(GameMetrics.Phase.FUEL_REFILL, startTime);
         } 
 
-        // Update building height randomly
-        for (Building building : buildings) {
-            changeHeightRandomly(building, buildings);
+        // Update building height randomly, counting heights once so the tallest building
+        // is tracked as heights change instead of being searched for on every update
+        startTime = GameMetrics.start();
+        int activeStart = world.getActiveStart();
+        int activeEnd = world.getActiveEnd();
+        if (parallelTick != null && activeEnd - activeStart > ParallelTick.CHUNK_SIZE
+                && world.allowsConcurrentHeightUpdates()) {
+            parallelTick.changeHeights(world, activeStart, activeEnd, random.nextLong());
+        } else {
+            heightHistogram.reset(world, activeStart, activeEnd);
+            for (int i = activeStart; i < activeEnd; i++) {
+                changeHeightRandomly(world, i, heightHistogram);
+            }
         }
+        GameMetrics.stop(GameMetrics.Phase.HEIGHTS, startTime);
     
         // Randomly change the location of the web booby-trap
-        changeWebLocationRandomly(buildings);
+        startTime = GameMetrics.start();
+        changeWebLocationRandomly(world);
+        GameMetrics.stop(GameMetrics.Phase.WEB_MOVE, startTime);
     
         // Randomly freeze a building
-        freezeRandomBuilding(buildings);
-    
-    }
+        startTime = GameMetrics.start();
+        freezeRandomBuilding(world);
+        GameMetrics.stop(GameMetrics.Phase.FREEZE_MOVE, startTime);
 
-    
-    private void displayGameInterface(Building exitPortalBuilding) {
-        System.out.println("================== Jumper Game ==================");
-        System.out.println("Player: " + player.getName());
-        System.out.println("Charge: " + player.getCharge());
-        System.out.println("Turn: " + numberOfTurnsPlayed);
-        System.out.println("Current Building: " + (player.getPosition() + 1));
-
-        // Maximum building height
-        int maxBuildingHeight = getMaxBuildingHeight(buildings);
-
-        // Display the buildings vertically
-        for (int floor = maxBuildingHeight; floor >= 0; floor--) {
-            for (Building building : buildings) {
-                if (building.getHeight() > floor) {
-                    System.out.print("[ ]"); // Building block
-                }else if (building.getHeight() == floor){
-                    if (building.getPosition(buildings) == player.getPosition()) {
-                        System.out.print("*P*"); // Print player's position as "P"
-                    } else if (building.hasExitPortal()) {
-                        System.out.print("(E)"); // Print exit portal as "E"
-                    } else if (building.hasWeb()) {
-                        System.out.print("(W)"); // Print web trap as "W"
-                    } else if (building.isFrozen()) {
-                        System.out.print("FRZ"); // Print freeze as "FRZ" */
-                    }else if (building.hasFuelCell()) {
-                        System.out.print("(F)"); // Print fuel cell as "F"
-                    }else{
-                        System.out.print("   "); // Building block
-                    }
-                } else {
-                    System.out.print("   "); // Empty space
-                }
-            }
-            System.out.println();
+        // An endless world finds portals as it generates buildings and forgets them as it evicts them
+        if (exitPortalBuildingIndex < 0 || !world.getExitPortals().contains(exitPortalBuildingIndex)) {
+            exitPortalBuildingIndex = findExitPortalIndex(world);
         }
     
-        System.out.println("=============================================");
     }
 
+    // Prints a game event after an empty line, unless the game is headless
+    private void printEvent(String message) {
+        if (!quiet) {
+            console.println();
+            console.println(message);
+        }
+    }
 
-    public int calculateNewPosition(String jumpDirection, int jumpRange) {
-        int newPosition = player.getPosition();
+    
+    void displayGameInterface(Building exitPortalBuilding) {
+        // The renderer builds the whole frame first and prints it in one go
+        console.print(renderer.render(world, player, numberOfTurnsPlayed));
+        console.flush();
+    }
 
-        if (jumpDirection.equals("left")) {
-            newPosition -= jumpRange;
-        } else if (jumpDirection.equals("right")) {
-            newPosition += jumpRange;
-        }
+    public int calculateNewPosition(JumpDirection jumpDirection, int jumpRange) {
+        int newPosition = player.getPosition() + jumpDirection.offset(jumpRange);
 
         // Validate new position to ensure it stays within bounds
         if (newPosition < 0) {
             newPosition = 0; // Player can't go before the first building
-        } else if (newPosition >= buildings.size()) {
-            newPosition = buildings.size() - 1; // Player can't go beyond the last building
+        } else if (newPosition >= world.size()) {
+            newPosition = world.size() - 1; // Player can't go beyond the last building
         }
         return newPosition;
     }
 
-    private void placeFuelCellsRandomly() {
+    void placeFuelCellsRandomly() {
         int numFuelCells = random.nextInt(4) + 1; // Random number between 1 and 4
-        List<Integer> availableBuildingIndices = new ArrayList<>();
-
-        // Find available building indices to place fuel cells
-        for (int i = 0; i < buildings.size(); i++) {
-            if (!buildings.get(i).hasFuelCell()) {
-                availableBuildingIndices.add(i);
+        PositionSet fuelCells = world.getFuelCells();
+        int activeStart = world.getActiveStart();
+        int activeCount = world.getActiveEnd() - activeStart;
+
+        // Place fuel cells on active buildings without one; the n-th such building is found from
+        // the few fuel cells there are, the same pick as from a list of the free buildings in order
+        for (int i = 0; i < numFuelCells; i++) {
+            int freeCount = activeCount - fuelCells.count(activeStart, activeStart + activeCount);
+            if (freeCount == 0) {
+                break;
             }
-        }
-
-        // Place fuel cells on available buildings
-        for (int i = 0; i < numFuelCells && !availableBuildingIndices.isEmpty(); i++) {
-            int randomIndex = random.nextInt(availableBuildingIndices.size());
-            int randomBuildingIndex = availableBuildingIndices.get(randomIndex);
-            buildings.get(randomBuildingIndex).setHasFuelCell(true);
-            availableBuildingIndices.remove(randomIndex);
+            int randomIndex = random.nextInt(freeCount);
+            world.setHasFuelCell(fuelCells.nthAbsent(activeStart, randomIndex), true);
         }
     }
 
-    private void removeFuelCells() {
-        for (Building building : buildings) {
-            building.setHasFuelCell(false);
+    void removeFuelCells() {
+        PositionSet fuelCells = world.getFuelCells();
+        while (fuelCells.size() > 0) {
+            world.setHasFuelCell(fuelCells.get(fuelCells.size() - 1), false);
         }
     }
 
     public void displayOutcome() {
-        System.out.println();
-        System.out.println("Game Over!");
+        console.println();
+        console.println("Game Over!");
 
         if (player.getHasWon() == true) {
-            System.out.println("Congratulations, " + player.getName() + "! You reached the exit portal and won the game!");
+            console.println("Congratulations, " + player.getName() + "! You reached the exit portal and won the game!");
         } else if (player.getHasWon() == false){
-            System.out.println("Sorry, " + player.getName() + ". You lost the game.");
+            console.println("Sorry, " + player.getName() + ". You lost the game.");
         } else {
-            System.out.println("Whoops ");
+            console.println("Whoops ");
         }
 
-        System.out.println("Final statistics:");
-        System.out.println("Player: " + player.getName());
-        System.out.println("Final Charge Level: " + player.getCharge());
+        console.println("Final statistics:");
+        console.println("Player: " + player.getName());
+        console.println("Final Charge Level: " + player.getCharge());
     }
 
     private void writeOutcomeStats() {
-        try {
-            FileWriter writer = new FileWriter("outcome.txt",true);
-            writer.write("Player Name: " + player.getName() + "\n");
-            writer.write("Number of turns played: " + numberOfTurnsPlayed + "\n");
-            writer.write("Charge level: " + player.getCharge() + "\n");
-            writer.write("Number of fuel cells found: " + numberOfFuelCellsFound + "\n");
-            writer.write("Win status: " + (player.getHasWon() ? "Won" : "Lost") + "\n");
-            writer.close();
+        OutcomeRecord record = OutcomeRecord.of(this);
+
+        // With an outcome sink the record is written in a batch by its background thread
+        if (outcomeSink != null) {
+            try {
+                outcomeSink.submit(record);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        // Otherwise append the legacy text layout to outcome.txt in one write
+        try (FileWriter writer = new FileWriter("outcome.txt", true)) {
+            writer.write(record.toLegacyText());
         } catch (IOException e) {
-            System.out.println("An error occurred while writing to outcome.txt");
+            console.println("An error occurred while writing to outcome.txt");
         }
     }
 
+    // Sends outcomes to a binary outcome file instead of outcome.txt
+    public void setOutcomeSink(OutcomeSink outcomeSink) {
+        this.outcomeSink = outcomeSink;
+    }
+
      // Setter for the buildings list
     public void setBuildings(List<Building> buildingsList) {
-        buildings = buildingsList;
+        world = new ListWorld(buildingsList);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getExitPortalBuildingIndex() {
+        return exitPortalBuildingIndex;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public int getNumberOfTurnsPlayed() {
+        return numberOfTurnsPlayed;
+    }
+
+    public int getNumberOfFuelCellsFound() {
+        return numberOfFuelCellsFound;
+    }
+
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    // True when turn events are not printed, as in headless games
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
     }
 
     public int getMaxBuildingHeight(List<Building> buildings) {
@@ -343,9 +566,18 @@ public class Jumper {
         return maxHeight;
     }
 
+    public int getMaxBuildingHeight(World world) {
+        int maxHeight = 0;
+        for (int i = 0; i < world.size(); i++) {
+            if (world.getHeight(i) > maxHeight) {
+                maxHeight = world.getHeight(i);
+            }
+        }
+        return maxHeight;
+    }
+
     public void changeHeightRandomly(Building building, List<Building> buildings) {
-        // Change the building's height randomly
-        Random random = new Random();
+        // Change the building's height randomly using the game's random generator
 
         // Save the current height as the previousHeight
         building.setPreviousHeight(building.getHeight());
@@ -358,207 +590,118 @@ public class Jumper {
         building.setHeight(newHeight);
     }
 
+    // Same as changeHeightRandomly above, but reads the maximum height from a histogram
+    // that is kept up to date, so the sweep in updateGameConditions is linear
+    public void changeHeightRandomly(World world, int index, HeightHistogram heights) {
+        int height = world.getHeight(index);
+        world.setPreviousHeight(index, height);
+
+        // Generate a random height between 1 and the current maximum height
+        int newHeight = random.nextInt(heights.getMaxHeight()) + 1;
+
+        heights.changeHeight(height, newHeight);
+        world.setHeight(index, newHeight);
+    }
+
     public void freezeRandomBuilding(List<Building> buildings) {
+        freezeRandomBuilding(new ListWorld(buildings));
+    }
+
+    public void freezeRandomBuilding(World world) {
         
         // Unfreeze the currently frozen building (if any)
-        for (Building building : buildings) {
-            if (building.isFrozen()) {
-                building.setFrozen(false);
-                break;
-            }
+        PositionSet frozenBuildings = world.getFrozenBuildings();
+        if (frozenBuildings.size() > 0) {
+            world.setFrozen(frozenBuildings.get(0), false);
         }
-        Random random = new Random();
-
         // Generate a random index for the new locatiion of the frozen building
-        int randomBuildingIndex = random.nextInt(buildings.size());
+        int randomBuildingIndex = world.getActiveStart() + random.nextInt(world.getActiveEnd() - world.getActiveStart());
         
         // Set the new building as frozen
-        buildings.get(randomBuildingIndex).setFrozen(true);
+        world.setFrozen(randomBuildingIndex, true);
     }
 
     public void changeWebLocationRandomly(List<Building> buildings) {
+        changeWebLocationRandomly(new ListWorld(buildings));
+    }
+
+    public void changeWebLocationRandomly(World world) {
         // Remove the web booby-trap from the current building
-        for (Building building : buildings) {
-            if (building.hasWeb()) {
-                building.setHasWeb(false);
-                break;
-            }
+        PositionSet webs = world.getWebs();
+        if (webs.size() > 0) {
+            world.setHasWeb(webs.get(0), false);
         }
-         Random random = new Random();
-
         // Generate a random index for the new location of the web booby-trap
-        int newWebIndex = random.nextInt(buildings.size());
+        int newWebIndex = world.getActiveStart() + random.nextInt(world.getActiveEnd() - world.getActiveStart());
 
         // Set the web booby-trap on the new building
-        buildings.get(newWebIndex).setHasWeb(true);
+        world.setHasWeb(newWebIndex, true);
     }
 
     // Other methods and fields...
 
-    public static void main(String[] args) {
+    private static final String USAGE = "Usage: java Jumper [--record <journal file>] [--leaderboard <leaderboard file>]"
+            + " [--endless <seed>] [--realtime <tick ms>]";
+    private static final Set<String> OPTIONS = Set.of("--record", "--leaderboard", "--endless", "--realtime");
+
+    // Usage: java Jumper [--record <journal file>] [--leaderboard <leaderboard file>] [--endless <seed>]
+    //                   [--realtime <tick ms>]
+    // An unknown option or one without a value prints the usage and exits with status 2.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Check every option before acting on any, so nothing is opened for a command line that's wrong
+        for (int i = 0; i < args.length; i += 2) {
+            if (!OPTIONS.contains(args[i])) {
+                System.out.println("Unknown option: " + args[i]);
+                System.out.println(USAGE);
+                System.exit(2);
+            }
+            if (i + 1 == args.length) {
+                System.out.println("Option " + args[i] + " needs a value");
+                System.out.println(USAGE);
+                System.exit(2);
+            }
+        }
         Jumper game = new Jumper();
-        game.startGame();
-    }
-}
-
-class Building {
-    private int height;
-    private boolean hasExitPortal;
-    private boolean hasFuelCell;
-    private boolean hasWeb;
-    private boolean isFrozen;
-    private int previousHeight;
-
-    public Building() {
-        this.height = 0;
-        this.hasExitPortal = false;
-        this.hasFuelCell = false;
-        this.hasWeb = false;
-        this.isFrozen = false;
-    }
-
-    public Building(int height, boolean hasExitPortal, boolean hasFuelCell, boolean hasWeb, boolean isFrozen) {
-        this.height = height;
-        this.hasExitPortal = hasExitPortal;
-        this.hasFuelCell = hasFuelCell;
-        this.hasWeb = hasWeb;
-        this.isFrozen = isFrozen;
-        this.previousHeight = height; 
-    }
-
-    public int getHeight() {
-        return height;
-    }
-
-    public void setHeight(int height) {
-        this.height = height;
-    }
-
-    public boolean hasExitPortal() {
-        return hasExitPortal;
-    }
-
-    public void setHasExitPortal(boolean hasExitPortal) {
-        this.hasExitPortal = hasExitPortal;
-    }
-
-    public boolean hasFuelCell() {
-        return hasFuelCell;
-    }
-
-    public void setHasFuelCell(boolean hasFuelCell) {
-        this.hasFuelCell = hasFuelCell;
-    }
-
-    public boolean hasWeb() {
-        return hasWeb;
-    }
-
-    public void setHasWeb(boolean hasWeb) {
-        this.hasWeb = hasWeb;
-    }
-
-    public boolean isFrozen() {
-        return isFrozen;
-    }
-
-    public void setFrozen(boolean frozen) {
-        isFrozen = frozen;
-    }
-
-    public int getPosition(List<Building> buildings) {
-        // Return the index of this building in the buildings list
-        return buildings.indexOf(this);
-    }
-
-    public int getPreviousHeight() {
-        return previousHeight;
-    }
-
-    public void setPreviousHeight(int previousHeight) {
-        this.previousHeight = previousHeight;
-    }
-
-}
-
-class Player {
-    private String name;
-    private int position;
-    private int charge;
-    private boolean hasWon;
-    private boolean hasLost;
-
-// Default constructor
-    public Player() {
-        this.name = "";
-        this.position = 0; // Start on the first building
-        this.charge = 10; // Initial charge is 50%
-        this.hasWon = false; // Initialize hasWon as false
-        this.hasLost = false; // Initialize hasLost as false
-    }
-
-    // Non-default constructor
-    public Player(String name) {
-        this.name = name;
-        this.position = 0; 
-        this.charge = 10;
-        this.hasWon = false; 
-        this.hasLost = false; 
-    }
-
-    public String getName() {
-        return name;
-    }
-
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    public int getPosition() {
-        return position;
-    }
-
-    public void setPosition(int position) {
-        this.position = position;
-    }
-
-    public int getCharge() {
-        return charge;
-    }
-
-    public void setCharge(int charge) {
-        this.charge = charge;
-    }
-
-    public void consumeCharge(int amount) {
-        charge -= amount;
-        if (charge < 0) {
-            charge = 0; // Ensure charge doesn't go below 0
+        Leaderboard leaderboard = null;
+        boolean recording = false;
+        boolean endless = false;
+        long tickMillis = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--record")) {
+                game.recordTo(args[i + 1]);
+                recording = true;
+            } else if (args[i].equals("--leaderboard")) {
+                leaderboard = new Leaderboard(args[i + 1]);
+                game.setOutcomeSink(leaderboard);
+            } else if (args[i].equals("--endless")) {
+                game.setLayout(new ChunkedWorld(Long.parseLong(args[i + 1])));
+                endless = true;
+            } else if (args[i].equals("--realtime")) {
+                tickMillis = Long.parseLong(args[i + 1]);
+            }
         }
-    }
-
-    public void rechargeDevice(int amount) {
-        charge += amount;
-        if (charge > 20) {
-            charge = 20; // Ensure charge doesn't exceed 20
+        if (recording && endless) {
+            // A journal keeps a copy of every building, which an endless world doesn't have
+            System.out.println("Endless games can't be recorded; playing without a recording.");
+            game.recordTo(null);
+        } else if (recording && tickMillis > 0) {
+            // A journal replays moves, and the idle turns of a real-time game aren't moves
+            System.out.println("Real-time games can't be recorded; playing without a recording.");
+            game.recordTo(null);
+        }
+        if (tickMillis > 0) {
+            RealTimeGame realTimeGame = new RealTimeGame(game, tickMillis);
+            realTimeGame.play();
+            if (GameMetrics.ENABLED) {
+                LatencyHistogram jitter = realTimeGame.getJitter();
+                System.err.printf("Tick jitter (us): p50 %.1f, p99 %.1f, max %.1f over %d ticks%n", jitter.getPercentile(0.5) / 1e3,
+                        jitter.getPercentile(0.99) / 1e3, jitter.getMax() / 1e3, jitter.getCount());
+            }
+        } else {
+            game.startGame();
+        }
+        if (leaderboard != null) {
+            leaderboard.close();
         }
     }
-
-    public boolean getHasWon() {
-        return hasWon;
-    }
-
-    public void setHasWon(boolean hasWon) {
-        this.hasWon = hasWon;
-    }
-
-    public boolean getHasLost() {
-        return hasLost;
-    }
-
-    public void setHasLost(boolean hasLost) {
-        this.hasLost = hasLost;
-    }
-
 }
-
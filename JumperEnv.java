@@ -0,0 +1,206 @@
+import java.lang.management.*;
+import java.util.*;
+
+// A training environment for automated agents, in the reset/step style of gym. It plays the
+// Jumper rules headless on a compact copy of a layout, takes actions as ints and writes each
+// observation into an int array the caller owns:
+//   [POSITION] position, [CHARGE] charge, [TURN] turns played, [STATUS] PLAYING, WON or LOST,
+//   then from HEADER one height per building, then one flags word per building
+//   (EXIT_PORTAL, FUEL_CELL, WEB and FROZEN bits).
+// reset puts the same world back in place and reseeds the same game, and step plays one turn,
+// so neither allocates once the environment is built. A left or right that the jumper can't
+// make is played as stay, so every action is legal; isActionAllowed tells them apart.
+// An episode with the same seed plays exactly like a headless Jumper game with that seed.
+public class JumperEnv {
+    // The same codes as JumpDirection's ordinals
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int STAY = 2;
+    public static final int ACTION_COUNT = 3;
+
+    public static final int POSITION = 0;
+    public static final int CHARGE = 1;
+    public static final int TURN = 2;
+    public static final int STATUS = 3;
+    public static final int HEADER = 4;
+
+    public static final int PLAYING = 0;
+    public static final int WON = 1;
+    public static final int LOST = 2;
+
+    public static final int EXIT_PORTAL = 1;
+    public static final int FUEL_CELL = 2;
+    public static final int WEB = 4;
+    public static final int FROZEN = 8;
+
+    public static final int DEFAULT_MAX_TURNS = 1_000;
+
+    private final ArrayWorld layout;
+    private final ArrayWorld world;
+    private final Jumper game;
+    private final Player player;
+    private final int maxTurns;
+
+    public JumperEnv(World layout) {
+        this(layout, DEFAULT_MAX_TURNS);
+    }
+
+    // Episodes are cut off after maxTurns turns
+    public JumperEnv(World layout, int maxTurns) {
+        this.layout = ArrayWorld.copyOf(layout);
+        this.world = new ArrayWorld(this.layout);
+        this.player = new Player("agent");
+        this.game = new Jumper(world, player, 0);
+        this.maxTurns = maxTurns;
+    }
+
+    public int getObservationSize() {
+        return HEADER + 2 * world.size();
+    }
+
+    public void reset(long seed, int[] observation) {
+        reset(seed, observation, 0);
+    }
+
+    // Starts a new episode and writes its first observation at the offset
+    public void reset(long seed, int[] observation, int offset) {
+        world.copyFrom(layout);
+        game.restart(seed);
+        observe(observation, offset);
+    }
+
+    public double step(int action, int[] observation) {
+        return step(action, observation, 0);
+    }
+
+    // Plays one turn and writes the observation at the offset. Returns the reward: 1 for
+    // reaching the exit portal, -1 for losing and 0 otherwise.
+    public double step(int action, int[] observation, int offset) {
+        if (action < 0 || action >= ACTION_COUNT) {
+            throw new IllegalArgumentException("Unknown action: " + action);
+        }
+        if (isDone()) {
+            throw new IllegalStateException("The episode is over; call reset first");
+        }
+        int maxJumpRange = world.getHeight(player.getPosition());
+        JumpDirection jumpDirection = JumpDirection.forCode(action);
+        if (!game.isJumpAllowed(jumpDirection, maxJumpRange)) {
+            jumpDirection = JumpDirection.STAY;
+        }
+        game.playTurn(jumpDirection, maxJumpRange);
+        observe(observation, offset);
+        return player.getHasWon() ? 1 : player.getHasLost() ? -1 : 0;
+    }
+
+    // True once the player has won or lost, or the episode has run out of turns
+    public boolean isDone() {
+        return player.getHasWon() || player.getHasLost() || game.getNumberOfTurnsPlayed() >= maxTurns;
+    }
+
+    public boolean isActionAllowed(int action) {
+        return game.isJumpAllowed(JumpDirection.forCode(action), world.getHeight(player.getPosition()));
+    }
+
+    // The game being played, for reading more than the observation holds
+    public Jumper getGame() {
+        return game;
+    }
+
+    private void observe(int[] observation, int offset) {
+        int size = world.size();
+        observation[offset + POSITION] = player.getPosition();
+        observation[offset + CHARGE] = player.getCharge();
+        observation[offset + TURN] = game.getNumberOfTurnsPlayed();
+        observation[offset + STATUS] = player.getHasWon() ? WON : player.getHasLost() ? LOST : PLAYING;
+        int heights = offset + HEADER;
+        int flags = heights + size;
+        for (int i = 0; i < size; i++) {
+            observation[heights + i] = world.getHeight(i);
+        }
+        // The flags come from the few positions that have them rather than from every building
+        Arrays.fill(observation, flags, flags + size, 0);
+        addFlags(observation, flags, world.getExitPortals(), EXIT_PORTAL);
+        addFlags(observation, flags, world.getFuelCells(), FUEL_CELL);
+        addFlags(observation, flags, world.getWebs(), WEB);
+        addFlags(observation, flags, world.getFrozenBuildings(), FROZEN);
+    }
+
+    private static void addFlags(int[] observation, int flags, PositionSet positions, int flag) {
+        for (int i = 0; i < positions.size(); i++) {
+            observation[flags + positions.get(i)] |= flag;
+        }
+    }
+
+    // Checks that greedy episodes end exactly like BatchSimulator's games with the same seeds,
+    // then measures steps per second and bytes allocated per step, for one environment and
+    // for a JumperVectorEnv.
+    // Usage: java JumperEnv [steps] [environments] [buildings file]
+    public static void main(String[] args) throws Exception {
+        long steps = args.length > 0 ? Long.parseLong(args[0]) : 20_000_000;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        World layout = WorldLoader.load(args.length > 2 ? args[2] : "buildings.txt");
+
+        JumperEnv env = new JumperEnv(layout);
+        int[] observation = new int[env.getObservationSize()];
+        MoveStrategy greedy = new GreedyMoveStrategy();
+        int games = 100_000;
+        int mismatches = 0;
+        for (int n = 0; n < games; n++) {
+            long seed = BatchSimulator.gameSeed(1, n);
+            env.reset(seed, observation);
+            while (!env.isDone()) {
+                Jumper game = env.getGame();
+                JumpDirection jumpDirection = greedy.chooseJumpDirection(game, game.getWorld().getHeight(game.getPlayer().getPosition()));
+                env.step(jumpDirection.ordinal(), observation);
+            }
+            Jumper expected = new Jumper(layout.copy(), new Player("agent"), seed);
+            expected.playHeadless(greedy, DEFAULT_MAX_TURNS);
+            if (GameJournal.checksum(env.getGame()) != GameJournal.checksum(expected)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("%d greedy episodes, %d ended differently from headless games%n", games, mismatches);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SplittableRandom actions = new SplittableRandom(7);
+        for (int pass = 0; pass < 3; pass++) {
+            long episodes = 0;
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long startTime = System.nanoTime();
+            env.reset(pass, observation);
+            for (long i = 0; i < steps; i++) {
+                env.step(actions.nextInt(ACTION_COUNT), observation);
+                if (env.isDone()) {
+                    env.reset(i, observation);
+                    episodes++;
+                }
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            System.out.printf("1 environment: %.2f M steps/s, %d episodes, %.4f bytes allocated per step%n",
+                    steps / seconds / 1e6, episodes, (double) allocated / steps);
+        }
+
+        JumperVectorEnv vectorEnv = new JumperVectorEnv(layout, count, DEFAULT_MAX_TURNS);
+        int[] observations = new int[count * vectorEnv.getObservationSize()];
+        int[] batchActions = new int[count];
+        double[] rewards = new double[count];
+        boolean[] dones = new boolean[count];
+        vectorEnv.reset(1, observations);
+        for (int pass = 0; pass < 3; pass++) {
+            long batches = steps / count;
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long startTime = System.nanoTime();
+            for (long b = 0; b < batches; b++) {
+                for (int i = 0; i < count; i++) {
+                    batchActions[i] = actions.nextInt(ACTION_COUNT);
+                }
+                vectorEnv.step(batchActions, observations, rewards, dones);
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            System.out.printf("%d environments: %.2f M steps/s, %.4f bytes allocated per step%n",
+                    count, batches * count / seconds / 1e6, (double) allocated / (batches * count));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// N JumperEnvs stepped together, for agents that act on a batch of games at once. Actions,
+// observations, rewards and done flags are flat arrays indexed by environment; environment i's
+// observation starts at i * getObservationSize().
+// An environment whose episode ends is reset straight away, so every step of the batch
+// returns a live observation; dones[i] tells the agent that its previous episode ended with
+// rewards[i]. Each episode's seed comes from the batch seed, the environment and the episode
+// number, so a batch replays the same from the same seed. Nothing is allocated per step.
+public class JumperVectorEnv {
+    private final JumperEnv[] environments;
+    private final int observationSize;
+    private final long[] episodes;
+    private long seed;
+
+    public JumperVectorEnv(World layout, int count, int maxTurns) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Need at least one environment: " + count);
+        }
+        environments = new JumperEnv[count];
+        for (int i = 0; i < count; i++) {
+            environments[i] = new JumperEnv(layout, maxTurns);
+        }
+        observationSize = environments[0].getObservationSize();
+        episodes = new long[count];
+    }
+
+    public int size() {
+        return environments.length;
+    }
+
+    // Per environment
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    public JumperEnv getEnvironment(int index) {
+        return environments[index];
+    }
+
+    // Starts every environment on its first episode for this seed
+    public void reset(long seed, int[] observations) {
+        this.seed = seed;
+        for (int i = 0; i < environments.length; i++) {
+            episodes[i] = 0;
+            environments[i].reset(episodeSeed(i), observations, i * observationSize);
+        }
+    }
+
+    public void step(int[] actions, int[] observations, double[] rewards, boolean[] dones) {
+        for (int i = 0; i < environments.length; i++) {
+            JumperEnv environment = environments[i];
+            int offset = i * observationSize;
+            rewards[i] = environment.step(actions[i], observations, offset);
+            dones[i] = environment.isDone();
+            if (dones[i]) {
+                episodes[i]++;
+                environment.reset(episodeSeed(i), observations, offset);
+            }
+        }
+    }
+
+    private long episodeSeed(int index) {
+        return BatchSimulator.gameSeed(seed, episodes[index] * environments.length + index);
+    }
+}
@@ -0,0 +1,353 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Generates random layouts from a few parameters and keeps only those that play neither too
+// hard nor too easy. Every candidate is scored by playing headless games of the real rules on
+// it, the same games BatchSimulator plays (same seeds, strategy and turn limit), so a survivor's
+// win rate can be checked with
+//   java BatchSimulator <games> <strategy> <seed> 1 <survivor file>
+// Candidates are numbered and each is generated from its own seed, so a run finds the same
+// survivors on any number of threads. Each worker reuses one world for the candidate and one
+// for the game, and a candidate is dropped as soon as its win rate is clearly outside the band:
+// exactly, when the games left can't bring it back in, or with 99.9% confidence by the Wilson
+// score interval. Survivors are written in the buildings.txt format, in candidate order, with
+// an index of their win rates, as each block of candidates is finished.
+// Usage: java LayoutGenerator <output directory> [--candidates N] [--length N] [--heights MIN-MAX]
+//        [--hazards DENSITY] [--fuel DENSITY] [--portal end|far|anywhere] [--band MIN-MAX]
+//        [--games N] [--strategy greedy|random] [--seed N] [--threads N]
+public class LayoutGenerator {
+    public enum PortalPlacement {
+        END,      // on the last building, as in buildings.txt
+        FAR,      // anywhere in the last quarter
+        ANYWHERE  // anywhere but the first building
+    }
+
+    public static final int DEFAULT_GAMES = 200;
+    private static final int CANDIDATES_PER_TASK = 256;
+    private static final int MAX_TURNS = 1_000;
+    private static final int CHECK_EVERY = 25; // games between confidence checks
+    private static final double Z = 3.29; // 99.9% two-sided
+    private static final String USAGE = "Usage: java LayoutGenerator <output directory> [--candidates N] [--length N]"
+            + " [--heights MIN-MAX] [--hazards DENSITY] [--fuel DENSITY] [--portal end|far|anywhere]"
+            + " [--band MIN-MAX] [--games N] [--strategy greedy|random] [--seed N] [--threads N]";
+    private static final Set<String> OPTIONS = Set.of("--candidates", "--length", "--heights", "--hazards", "--fuel",
+            "--portal", "--band", "--games", "--strategy", "--seed", "--threads");
+
+    private final int length;
+    private final int minHeight;
+    private final int maxHeight;
+    private double hazardDensity = 0.1;
+    private double fuelDensity = 0.25;
+    private PortalPlacement portalPlacement = PortalPlacement.END;
+    private double minWinRate = 0.2;
+    private double maxWinRate = 0.5;
+    private int games = DEFAULT_GAMES;
+    private MoveStrategy strategy = new GreedyMoveStrategy();
+
+    public LayoutGenerator(int length, int minHeight, int maxHeight) {
+        if (length < 2) {
+            throw new IllegalArgumentException("A layout needs at least two buildings: " + length);
+        }
+        if (minHeight < 1 || minHeight > maxHeight || maxHeight > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid height range " + minHeight + "-" + maxHeight);
+        }
+        this.length = length;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+    }
+
+    // Chance that a building other than the first starts with a web or frozen, half of each
+    public void setHazardDensity(double hazardDensity) {
+        this.hazardDensity = checkFraction("hazard density", hazardDensity);
+    }
+
+    // Chance that a building other than the first and the portal starts with a fuel cell
+    public void setFuelDensity(double fuelDensity) {
+        this.fuelDensity = checkFraction("fuel density", fuelDensity);
+    }
+
+    public void setPortalPlacement(PortalPlacement portalPlacement) {
+        this.portalPlacement = portalPlacement;
+    }
+
+    // Layouts are kept when their win rate is from minWinRate to maxWinRate
+    public void setWinRateBand(double minWinRate, double maxWinRate) {
+        if (checkFraction("win rate", minWinRate) > checkFraction("win rate", maxWinRate)) {
+            throw new IllegalArgumentException("Invalid win rate band " + minWinRate + "-" + maxWinRate);
+        }
+        this.minWinRate = minWinRate;
+        this.maxWinRate = maxWinRate;
+    }
+
+    // Games played on a candidate that isn't dropped early
+    public void setGames(int games) {
+        if (games < 1) {
+            throw new IllegalArgumentException("Need at least one game per layout: " + games);
+        }
+        this.games = games;
+    }
+
+    // The strategy the scoring games are played with; strategies are shared by all threads
+    public void setStrategy(MoveStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    // Generates the candidate with this number into the world, which must have the layout's length
+    public void generate(long seed, long candidate, ArrayWorld world) {
+        SplittableRandom random = new SplittableRandom(BatchSimulator.gameSeed(seed, candidate));
+        int portal;
+        switch (portalPlacement) {
+            case FAR:
+                int farStart = Math.max(1, length - Math.max(1, length / 4));
+                portal = farStart + random.nextInt(length - farStart);
+                break;
+            case ANYWHERE:
+                portal = 1 + random.nextInt(length - 1);
+                break;
+            default:
+                portal = length - 1;
+                break;
+        }
+        for (int i = 0; i < length; i++) {
+            int height = minHeight + random.nextInt(maxHeight - minHeight + 1);
+            world.setHeight(i, height);
+            world.setPreviousHeight(i, height);
+            boolean hazard = i > 0 && random.nextDouble() < hazardDensity;
+            boolean web = hazard && random.nextBoolean();
+            world.setHasExitPortal(i, i == portal);
+            world.setHasWeb(i, web);
+            world.setFrozen(i, hazard && !web);
+            world.setHasFuelCell(i, i > 0 && i != portal && random.nextDouble() < fuelDensity);
+        }
+    }
+
+    public ArrayWorld generate(long seed, long candidate) {
+        ArrayWorld world = new ArrayWorld(length);
+        generate(seed, candidate, world);
+        return world;
+    }
+
+    // Plays games on the layout until its win rate is known to be in or out of the band.
+    // Returns the win rate over all the games if it is in the band, otherwise -1.
+    public double score(ArrayWorld layout, long seed) {
+        return new Scorer().score(layout, seed);
+    }
+
+    // Generates and scores candidates 0 to candidates - 1, writing each survivor to the
+    // directory as layout-<candidate>.txt and a line "file,win rate" to index.txt
+    public GeneratorStats run(long candidates, long seed, int threads, File directory)
+            throws IOException, InterruptedException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        GeneratorStats total = new GeneratorStats();
+        try (Writer index = new BufferedWriter(new FileWriter(new File(directory, "index.txt")))) {
+            // Blocks are written in order as they finish; a bounded window of blocks in flight
+            // keeps the survivors waiting to be written few
+            Deque<Future<Block>> inFlight = new ArrayDeque<>();
+            long next = 0;
+            while (next < candidates || !inFlight.isEmpty()) {
+                while (next < candidates && inFlight.size() < 4 * threads) {
+                    long start = next;
+                    long end = Math.min(candidates, start + CANDIDATES_PER_TASK);
+                    inFlight.add(executor.submit(() -> runBlock(start, end, seed)));
+                    next = end;
+                }
+                Block block = inFlight.poll().get();
+                total.merge(block.stats);
+                for (int i = 0; i < block.survivors.size(); i++) {
+                    String fileName = String.format("layout-%d.txt", block.candidates.get(i));
+                    WorldLoader.writeText(block.survivors.get(i), new File(directory, fileName).getPath());
+                    index.write(fileName + "," + block.winRates.get(i) + "\n");
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Layout generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return total;
+    }
+
+    private Block runBlock(long start, long end, long seed) {
+        Block block = new Block();
+        Scorer scorer = new Scorer();
+        ArrayWorld candidate = new ArrayWorld(length);
+        for (long n = start; n < end; n++) {
+            generate(seed, n, candidate);
+            double winRate = scorer.score(candidate, seed);
+            block.stats.candidates++;
+            block.stats.games += scorer.played;
+            if (winRate >= 0) {
+                block.candidates.add(n);
+                block.winRates.add(winRate);
+                block.survivors.add(new ArrayWorld(candidate));
+            }
+        }
+        block.stats.survivors = block.survivors.size();
+        return block;
+    }
+
+    private static double checkFraction(String name, double value) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+        return value;
+    }
+
+    // Plays the scoring games for one worker on one reused world and game
+    private class Scorer {
+        private final ArrayWorld world = new ArrayWorld(length);
+        private final Player player = new Player("sim");
+        private final Jumper game = new Jumper(world, player, 0);
+        private int played;
+
+        double score(ArrayWorld layout, long seed) {
+            int wins = 0;
+            for (played = 0; played < games; ) {
+                world.copyFrom(layout);
+                game.restart(BatchSimulator.gameSeed(seed, played));
+                game.playHeadless(strategy, MAX_TURNS);
+                played++;
+                if (player.getHasWon()) {
+                    wins++;
+                }
+                if (isOutsideBand(wins, played)) {
+                    return -1;
+                }
+            }
+            double winRate = (double) wins / games;
+            return winRate >= minWinRate && winRate <= maxWinRate ? winRate : -1;
+        }
+
+        private boolean isOutsideBand(int wins, int played) {
+            int left = games - played;
+            if (wins > maxWinRate * games || wins + left < minWinRate * games) {
+                return true;
+            }
+            if (played % CHECK_EVERY != 0 || left == 0) {
+                return false;
+            }
+            // Wilson score interval of the win rate so far
+            double n = played;
+            double p = wins / n;
+            double z2 = Z * Z;
+            double centre = (p + z2 / (2 * n)) / (1 + z2 / n);
+            double half = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / (1 + z2 / n);
+            return centre + half < minWinRate || centre - half > maxWinRate;
+        }
+    }
+
+    private static class Block {
+        final GeneratorStats stats = new GeneratorStats();
+        final List<Long> candidates = new ArrayList<>();
+        final List<Double> winRates = new ArrayList<>();
+        final List<ArrayWorld> survivors = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println(USAGE);
+            return;
+        }
+        long candidates = 100_000;
+        int length = 15;
+        int[] heights = {1, 5};
+        double[] band = {0.2, 0.5};
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length % 2 == 0) {
+            System.out.println("Option " + args[args.length - 1] + " needs a value");
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!OPTIONS.contains(args[i])) {
+                System.out.println("Unknown option: " + args[i]);
+                System.out.println(USAGE);
+                System.exit(1);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        if (options.containsKey("--candidates")) {
+            candidates = Long.parseLong(options.get("--candidates"));
+        }
+        if (options.containsKey("--length")) {
+            length = Integer.parseInt(options.get("--length"));
+        }
+        if (options.containsKey("--heights")) {
+            String[] range = options.get("--heights").split("-");
+            heights = new int[] {Integer.parseInt(range[0]), Integer.parseInt(range[1])};
+        }
+        if (options.containsKey("--band")) {
+            String[] range = options.get("--band").split("-");
+            band = new double[] {Double.parseDouble(range[0]), Double.parseDouble(range[1])};
+        }
+        if (options.containsKey("--seed")) {
+            seed = Long.parseLong(options.get("--seed"));
+        }
+        if (options.containsKey("--threads")) {
+            threads = Integer.parseInt(options.get("--threads"));
+        }
+
+        LayoutGenerator generator = new LayoutGenerator(length, heights[0], heights[1]);
+        generator.setWinRateBand(band[0], band[1]);
+        if (options.containsKey("--hazards")) {
+            generator.setHazardDensity(Double.parseDouble(options.get("--hazards")));
+        }
+        if (options.containsKey("--fuel")) {
+            generator.setFuelDensity(Double.parseDouble(options.get("--fuel")));
+        }
+        if (options.containsKey("--portal")) {
+            generator.setPortalPlacement(PortalPlacement.valueOf(options.get("--portal").toUpperCase()));
+        }
+        if (options.containsKey("--games")) {
+            generator.setGames(Integer.parseInt(options.get("--games")));
+        }
+        if (options.containsKey("--strategy")) {
+            generator.setStrategy(MoveStrategy.forName(options.get("--strategy")));
+        }
+
+        long startTime = System.nanoTime();
+        GeneratorStats stats = generator.run(candidates, seed, threads, new File(args[0]));
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println(stats);
+        System.out.printf("Scored %d candidates on %d threads in %.2f s (%.0f candidates/s)%n",
+                stats.getCandidates(), threads, seconds, stats.getCandidates() / seconds);
+    }
+}
+
+// Totals of a layout generator run
+class GeneratorStats {
+    long candidates;
+    long games;
+    long survivors;
+
+    public void merge(GeneratorStats other) {
+        candidates += other.candidates;
+        games += other.games;
+        survivors += other.survivors;
+    }
+
+    public long getCandidates() {
+        return candidates;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getSurvivors() {
+        return survivors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Candidates: %d%nSurvivors: %d (%.2f%%)%nAverage games per candidate: %.1f",
+                candidates, survivors, candidates == 0 ? 0 : 100.0 * survivors / candidates,
+                candidates == 0 ? 0 : (double) games / candidates);
+    }
+}
@@ -0,0 +1,497 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+// A leaderboard kept in an outcome file. Every game's record is appended to the file like
+// any OutcomeSink, and also added to per-player totals and three player rankings held in
+// sorted sets: most wins, fewest turns in a winning game, and most charge left after a win.
+// A finished game moves its player in each ranking in O(log players), so "top 10" and
+// "how is player X doing" are answered from memory without re-reading any games.
+// The per-player totals are saved next to the outcome file, in <file>.index, every
+// SAVE_EVERY games and on close, together with how many records they cover, the file size
+// they cover and checksums of the first and last record covered. Opening a leaderboard loads
+// the index and reads only the records appended after it, so a query on a closed leaderboard
+// doesn't re-read any games. An index that is missing, damaged, ahead of the file or whose
+// checksums don't match the file's records is ignored and the whole file is read instead.
+// Usage: java Leaderboard <leaderboard file> [--import outcome.txt] [--player name] [top count]
+// An unknown option, an option without a value or a top count that isn't a number prints the
+// usage and exits with status 2.
+public class Leaderboard extends OutcomeSink {
+    public static final int INDEX_MAGIC = 0x4A4D504C; // "JMPL"
+    public static final int INDEX_VERSION = 2;
+    public static final String INDEX_SUFFIX = ".index";
+    public static final int SAVE_EVERY = 65_536;
+    private static final String USAGE =
+            "Usage: java Leaderboard <leaderboard file> [--import outcome.txt] [--player name] [top count]";
+
+    private final String indexFileName;
+    // Held by submit while it queues a record and ranks it, so records are ranked in queue
+    // order without holding the leaderboard's own lock while the queue is full
+    private final Object submitting = new Object();
+    private final Map<String, PlayerStats> players = new HashMap<>();
+    private final TreeSet<PlayerStats> byWins = new TreeSet<>((a, b) -> a.getWins() != b.getWins()
+            ? Integer.compare(b.getWins(), a.getWins()) : a.getName().compareTo(b.getName()));
+    private final TreeSet<PlayerStats> byFewestTurns = new TreeSet<>((a, b) -> a.getFewestTurnsToWin() != b.getFewestTurnsToWin()
+            ? Integer.compare(a.getFewestTurnsToWin(), b.getFewestTurnsToWin()) : a.getName().compareTo(b.getName()));
+    private final TreeSet<PlayerStats> byMostCharge = new TreeSet<>((a, b) -> a.getMostChargeAfterWin() != b.getMostChargeAfterWin()
+            ? Integer.compare(b.getMostChargeAfterWin(), a.getMostChargeAfterWin()) : a.getName().compareTo(b.getName()));
+    private long games;
+    private long savedGames;
+    private long firstRecordChecksum;
+    private OutcomeRecord lastRecord;
+
+    // Loads the index and totals the records after it first, and ranks each player once at the end
+    public Leaderboard(String fileName) throws IOException {
+        super(fileName);
+        indexFileName = fileName + INDEX_SUFFIX;
+        try (OutcomeReader reader = new OutcomeReader(fileName)) {
+            readIndex(reader);
+            reader.seek(games);
+            while (reader.next()) {
+                lastRecord = reader.getRecord();
+                players.computeIfAbsent(lastRecord.getName(), PlayerStats::new).add(lastRecord);
+                games++;
+            }
+            if (savedGames == 0 && games > 0) {
+                firstRecordChecksum = checksum(recordAt(reader, 0));
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                super.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        for (PlayerStats stats : players.values()) {
+            rank(stats);
+        }
+    }
+
+    // Queues the record to be appended to the file and ranks it. Records are ranked in the
+    // order they are queued, so the first n records in the file are always the first n ranked,
+    // and a record the sink refuses is never ranked. Queries only wait for the ranking, not for
+    // room in the queue.
+    @Override
+    public void submit(OutcomeRecord record) throws InterruptedException {
+        synchronized (submitting) {
+            super.submit(record);
+            add(record);
+        }
+        synchronized (this) {
+            if (games - savedGames >= SAVE_EVERY) {
+                try {
+                    saveIndex();
+                } catch (IOException e) {
+                    // The index is only a shortcut; the next open reads more of the file instead
+                }
+            }
+        }
+    }
+
+    // Writes everything submitted so far, then saves the index if any game came in since the last save
+    @Override
+    public void close() throws IOException {
+        super.close();
+        synchronized (this) {
+            if (games != savedGames) {
+                saveIndex();
+            }
+        }
+    }
+
+    // Only a win can move a player, and only in the rankings whose value it improves
+    private synchronized void add(OutcomeRecord record) {
+        if (games == 0) {
+            firstRecordChecksum = checksum(record);
+        }
+        lastRecord = record;
+        games++;
+        PlayerStats stats = players.get(record.getName());
+        if (stats == null) {
+            stats = new PlayerStats(record.getName());
+            players.put(stats.getName(), stats);
+            stats.add(record);
+            rank(stats);
+            return;
+        }
+        if (!record.hasWon()) {
+            stats.add(record);
+            return;
+        }
+        boolean fewerTurns = record.getNumberOfTurnsPlayed() < stats.getFewestTurnsToWin();
+        boolean moreCharge = record.getCharge() > stats.getMostChargeAfterWin();
+        byWins.remove(stats);
+        if (fewerTurns) {
+            byFewestTurns.remove(stats);
+        }
+        if (moreCharge) {
+            byMostCharge.remove(stats);
+        }
+        stats.add(record);
+        byWins.add(stats);
+        if (fewerTurns) {
+            byFewestTurns.add(stats);
+        }
+        if (moreCharge) {
+            byMostCharge.add(stats);
+        }
+    }
+
+    // Writes the totals to a new file and moves it over the old index, so a crash never leaves
+    // half an index behind. Records still queued are counted, so until they are written the
+    // index is ahead of the file and the next open ignores it.
+    private synchronized void saveIndex() throws IOException {
+        Path index = Paths.get(indexFileName);
+        Path saving = Paths.get(indexFileName + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(saving)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(games);
+            out.writeLong(OutcomeSink.HEADER_BYTES + games * OutcomeRecord.BYTES);
+            out.writeLong(firstRecordChecksum);
+            out.writeLong(games == 0 ? 0 : checksum(lastRecord));
+            out.writeInt(players.size());
+            for (PlayerStats stats : players.values()) {
+                stats.writeTo(out);
+            }
+        }
+        Files.move(saving, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedGames = games;
+    }
+
+    // Loads the totals of the first records from the index when it fits the reader's file: the
+    // file holds at least the records it covers and the first and last of them are the ones it saw
+    private void readIndex(OutcomeReader reader) {
+        File index = new File(indexFileName);
+        if (!index.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return;
+            }
+            long indexedGames = in.readLong();
+            long indexedFileSize = in.readLong();
+            long firstChecksum = in.readLong();
+            long lastChecksum = in.readLong();
+            if (indexedGames < 0 || indexedGames > reader.getRecordCount()
+                    || indexedFileSize != OutcomeSink.HEADER_BYTES + indexedGames * OutcomeRecord.BYTES) {
+                return; // saved before its last records were written, or for another file
+            }
+            OutcomeRecord last = indexedGames == 0 ? null : recordAt(reader, indexedGames - 1);
+            if (indexedGames > 0 && (firstChecksum != checksum(recordAt(reader, 0)) || lastChecksum != checksum(last))) {
+                return; // the file was replaced or rewritten since
+            }
+            int playerCount = in.readInt();
+            for (int i = 0; i < playerCount; i++) {
+                PlayerStats stats = PlayerStats.readFrom(in);
+                players.put(stats.getName(), stats);
+            }
+            games = indexedGames;
+            savedGames = indexedGames;
+            firstRecordChecksum = firstChecksum;
+            lastRecord = last;
+        } catch (IOException e) {
+            players.clear(); // damaged; read the whole file instead
+        }
+    }
+
+    private static OutcomeRecord recordAt(OutcomeReader reader, long record) throws IOException {
+        reader.seek(record);
+        reader.next();
+        return reader.getRecord();
+    }
+
+    // The CRC-32 of the record's bytes in an outcome file
+    private static long checksum(OutcomeRecord record) {
+        ByteBuffer bytes = ByteBuffer.allocate(OutcomeRecord.BYTES);
+        record.writeTo(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array());
+        return crc.getValue();
+    }
+
+    private void rank(PlayerStats stats) {
+        byWins.add(stats);
+        if (stats.getWins() > 0) {
+            byFewestTurns.add(stats);
+            byMostCharge.add(stats);
+        }
+    }
+
+    public synchronized long getGames() {
+        return games;
+    }
+
+    public synchronized int getPlayerCount() {
+        return players.size();
+    }
+
+    // A snapshot of the player's totals, or null if they haven't played
+    public synchronized PlayerStats getPlayer(String name) {
+        PlayerStats stats = players.get(name);
+        return stats == null ? null : new PlayerStats(stats);
+    }
+
+    public List<PlayerStats> topByWins(int count) {
+        return top(byWins, count);
+    }
+
+    public List<PlayerStats> topByFewestTurns(int count) {
+        return top(byFewestTurns, count);
+    }
+
+    public List<PlayerStats> topByMostCharge(int count) {
+        return top(byMostCharge, count);
+    }
+
+    private synchronized List<PlayerStats> top(TreeSet<PlayerStats> ranking, int count) {
+        List<PlayerStats> top = new ArrayList<>(Math.min(count, ranking.size()));
+        for (PlayerStats stats : ranking) {
+            if (top.size() == count) {
+                break;
+            }
+            top.add(new PlayerStats(stats));
+        }
+        return top;
+    }
+
+    // Adds every game in an outcome.txt written by the text version of writeOutcomeStats.
+    // Returns the number of games imported; incomplete records are skipped.
+    // The import is one-time: it is refused once the leaderboard holds any game, so importing
+    // the same text twice can't count its games twice. Other submits wait until it is done.
+    public int importLegacyText(String fileName) throws IOException, InterruptedException {
+        synchronized (submitting) {
+            long held = getGames();
+            if (held > 0) {
+                throw new IllegalStateException("Legacy games can only be imported into an empty leaderboard; "
+                        + "this one already holds " + held);
+            }
+            return importGames(fileName);
+        }
+    }
+
+    private int importGames(String fileName) throws IOException, InterruptedException {
+        int imported = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String name = null;
+            int turns = 0;
+            int charge = 0;
+            int fuelCells = 0;
+            int fields = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(": ");
+                if (colon < 0) {
+                    continue;
+                }
+                String key = line.substring(0, colon);
+                String value = line.substring(colon + 2).trim();
+                try {
+                    switch (key) {
+                        case "Player Name":
+                            name = value;
+                            fields = 1;
+                            break;
+                        case "Number of turns played":
+                            turns = Integer.parseInt(value);
+                            fields++;
+                            break;
+                        case "Charge level":
+                            charge = Integer.parseInt(value);
+                            fields++;
+                            break;
+                        case "Number of fuel cells found":
+                            fuelCells = Integer.parseInt(value);
+                            fields++;
+                            break;
+                        case "Win status":
+                            if (fields == 4 && name.length() <= OutcomeRecord.MAX_NAME_LENGTH) {
+                                submit(new OutcomeRecord(name, turns, charge, fuelCells, value.equals("Won")));
+                                imported++;
+                            }
+                            fields = 0;
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (NumberFormatException e) {
+                    fields = 0; // a damaged record; wait for the next player name
+                }
+            }
+        }
+        return imported;
+    }
+
+    private static void usageError(String message) {
+        System.out.println(message);
+        System.out.println(USAGE);
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+        String importFile = null;
+        String playerName = null;
+        int count = 10;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--import") || args[i].equals("--player")) {
+                if (i + 1 == args.length) {
+                    usageError("Option " + args[i] + " needs a value");
+                }
+                if (args[i].equals("--import")) {
+                    importFile = args[++i];
+                } else {
+                    playerName = args[++i];
+                }
+            } else if (args[i].startsWith("--")) {
+                usageError("Unknown option: " + args[i]);
+            } else {
+                try {
+                    count = Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    count = -1;
+                }
+                if (count < 0) {
+                    usageError("Not a top count: " + args[i]);
+                }
+            }
+        }
+
+        try (Leaderboard leaderboard = new Leaderboard(args[0])) {
+            if (importFile != null) {
+                try {
+                    System.out.println("Imported " + leaderboard.importLegacyText(importFile) + " games from " + importFile);
+                } catch (IllegalStateException e) {
+                    System.out.println(e.getMessage());
+                    return;
+                }
+            }
+            System.out.println(leaderboard.getGames() + " games by " + leaderboard.getPlayerCount() + " players");
+            if (playerName != null) {
+                PlayerStats stats = leaderboard.getPlayer(playerName);
+                System.out.println(stats == null ? playerName + " hasn't played" : stats.toString());
+                return;
+            }
+            System.out.println();
+            System.out.println("Most wins:");
+            for (PlayerStats stats : leaderboard.topByWins(count)) {
+                System.out.printf("  %-12s %6d wins of %d games%n", stats.getName(), stats.getWins(), stats.getGames());
+            }
+            System.out.println("Fewest turns to win:");
+            for (PlayerStats stats : leaderboard.topByFewestTurns(count)) {
+                System.out.printf("  %-12s %6d turns%n", stats.getName(), stats.getFewestTurnsToWin());
+            }
+            System.out.println("Most charge left after a win:");
+            for (PlayerStats stats : leaderboard.topByMostCharge(count)) {
+                System.out.printf("  %-12s %6d charge%n", stats.getName(), stats.getMostChargeAfterWin());
+            }
+        }
+    }
+}
+
+// One player's totals over all their games
+class PlayerStats {
+    private final String name;
+    private long games;
+    private int wins;
+    private long totalTurns;
+    private long totalFuelCells;
+    private int fewestTurnsToWin = Integer.MAX_VALUE;
+    private int mostChargeAfterWin = -1;
+
+    public PlayerStats(String name) {
+        this.name = name;
+    }
+
+    // Copy constructor
+    public PlayerStats(PlayerStats other) {
+        name = other.name;
+        games = other.games;
+        wins = other.wins;
+        totalTurns = other.totalTurns;
+        totalFuelCells = other.totalFuelCells;
+        fewestTurnsToWin = other.fewestTurnsToWin;
+        mostChargeAfterWin = other.mostChargeAfterWin;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeLong(games);
+        out.writeInt(wins);
+        out.writeLong(totalTurns);
+        out.writeLong(totalFuelCells);
+        out.writeInt(fewestTurnsToWin);
+        out.writeInt(mostChargeAfterWin);
+    }
+
+    static PlayerStats readFrom(DataInput in) throws IOException {
+        PlayerStats stats = new PlayerStats(in.readUTF());
+        stats.games = in.readLong();
+        stats.wins = in.readInt();
+        stats.totalTurns = in.readLong();
+        stats.totalFuelCells = in.readLong();
+        stats.fewestTurnsToWin = in.readInt();
+        stats.mostChargeAfterWin = in.readInt();
+        return stats;
+    }
+
+    void add(OutcomeRecord record) {
+        games++;
+        totalTurns += record.getNumberOfTurnsPlayed();
+        totalFuelCells += record.getNumberOfFuelCellsFound();
+        if (record.hasWon()) {
+            wins++;
+            fewestTurnsToWin = Math.min(fewestTurnsToWin, record.getNumberOfTurnsPlayed());
+            mostChargeAfterWin = Math.max(mostChargeAfterWin, record.getCharge());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getAverageTurns() {
+        return games == 0 ? 0 : (double) totalTurns / games;
+    }
+
+    public double getAverageFuelCells() {
+        return games == 0 ? 0 : (double) totalFuelCells / games;
+    }
+
+    // Integer.MAX_VALUE until the player has won
+    public int getFewestTurnsToWin() {
+        return fewestTurnsToWin;
+    }
+
+    // -1 until the player has won
+    public int getMostChargeAfterWin() {
+        return mostChargeAfterWin;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d games, %d wins (win rate %.4f), average turns %.3f, average fuel cells %.3f, "
+                + "fewest turns to win %s, most charge after a win %s",
+                name, games, wins, getWinRate(), getAverageTurns(), getAverageFuelCells(),
+                wins > 0 ? fewestTurnsToWin : "-", wins > 0 ? mostChargeAfterWin : "-");
+    }
+}
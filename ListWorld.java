@@ -0,0 +1,98 @@
+import java.util.*;
+
+// World backed by a list of Building objects, so existing lists can still be played on.
+// The buildings tell its FlagIndex when their flags change, even when changed directly
+// through their own setters. The list itself shouldn't gain or lose buildings while wrapped.
+public class ListWorld implements World {
+    private List<Building> buildings;
+    private FlagIndex flags;
+
+    public ListWorld(List<Building> buildings) {
+        this.buildings = buildings;
+        this.flags = FlagIndex.of(buildings);
+    }
+
+    public List<Building> getBuildings() {
+        return buildings;
+    }
+
+    public int size() {
+        return buildings.size();
+    }
+
+    public int getHeight(int index) {
+        return buildings.get(index).getHeight();
+    }
+
+    public void setHeight(int index, int height) {
+        buildings.get(index).setHeight(height);
+    }
+
+    public int getPreviousHeight(int index) {
+        return buildings.get(index).getPreviousHeight();
+    }
+
+    public void setPreviousHeight(int index, int previousHeight) {
+        buildings.get(index).setPreviousHeight(previousHeight);
+    }
+
+    public boolean hasExitPortal(int index) {
+        return buildings.get(index).hasExitPortal();
+    }
+
+    public void setHasExitPortal(int index, boolean hasExitPortal) {
+        buildings.get(index).setHasExitPortal(hasExitPortal);
+    }
+
+    public boolean hasFuelCell(int index) {
+        return buildings.get(index).hasFuelCell();
+    }
+
+    public void setHasFuelCell(int index, boolean hasFuelCell) {
+        buildings.get(index).setHasFuelCell(hasFuelCell);
+    }
+
+    public boolean hasWeb(int index) {
+        return buildings.get(index).hasWeb();
+    }
+
+    public void setHasWeb(int index, boolean hasWeb) {
+        buildings.get(index).setHasWeb(hasWeb);
+    }
+
+    public boolean isFrozen(int index) {
+        return buildings.get(index).isFrozen();
+    }
+
+    public void setFrozen(int index, boolean frozen) {
+        buildings.get(index).setFrozen(frozen);
+    }
+
+    public PositionSet getExitPortals() {
+        return flags.exitPortals;
+    }
+
+    public PositionSet getFuelCells() {
+        return flags.fuelCells;
+    }
+
+    public PositionSet getWebs() {
+        return flags.webs;
+    }
+
+    public PositionSet getFrozenBuildings() {
+        return flags.frozen;
+    }
+
+    public Building getBuilding(int index) {
+        return buildings.get(index);
+    }
+
+    public World copy() {
+        List<Building> copies = new ArrayList<>(buildings.size());
+        for (Building building : buildings) {
+            copies.add(new Building(building));
+        }
+        return new ListWorld(copies);
+    }
+}
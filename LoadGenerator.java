@@ -0,0 +1,221 @@
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Opens many sessions on a GameServer at once and plays them to the end with random moves,
+// to measure how many sessions the server holds and how quickly it answers each turn.
+// A turn's latency is the time from sending a move to receiving the next prompt (or Game Over!).
+// With "embedded" it starts its own server in this JVM on a free port, and first measures how
+// much heap a session waiting for its player holds: it opens that many connections, names
+// each player and waits for the first prompt, then compares the heap in use after a GC with
+// the heap in use before. The client's end of each connection is in the same heap, so the
+// figure is a little over what the server alone holds.
+// Usage: java LoadGenerator [sessions] [host:port | embedded] [think time ms]
+public class LoadGenerator {
+    private static final String JUMP_PROMPT = "Choose your jump direction";
+    private static final String GAME_OVER = "Game Over!";
+    private static final String[] MOVES = {"left", "right", "stay"};
+
+    private final String host;
+    private final int port;
+    private final int thinkMillis;
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final AtomicInteger peakSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+
+    public LoadGenerator(String host, int port, int thinkMillis) {
+        this.host = host;
+        this.port = port;
+        this.thinkMillis = thinkMillis;
+    }
+
+    // Plays the sessions concurrently and returns every turn latency in nanoseconds
+    public long[] run(int sessionCount) throws InterruptedException {
+        // The bots block on their sockets, so each needs a thread of its own on this side
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            String playerName = "bot" + i;
+            results.add(executor.submit(() -> playSession(playerName)));
+        }
+        List<long[]> sessionLatencies = new ArrayList<>(sessionCount);
+        int turns = 0;
+        for (Future<long[]> result : results) {
+            try {
+                long[] latencies = result.get();
+                sessionLatencies.add(latencies);
+                turns += latencies.length;
+            } catch (ExecutionException e) {
+                failedSessions.incrementAndGet();
+            }
+        }
+        executor.shutdown();
+        // One array sized for every session's turns, so gathering them is linear in the turns
+        long[] latencies = new long[turns];
+        int offset = 0;
+        for (long[] session : sessionLatencies) {
+            System.arraycopy(session, 0, latencies, offset, session.length);
+            offset += session.length;
+        }
+        return latencies;
+    }
+
+    private long[] playSession(String playerName) throws IOException, InterruptedException {
+        long[] latencies = new long[16];
+        int turns = 0;
+        try (Socket socket = new Socket(host, port)) {
+            int open = openSessions.incrementAndGet();
+            peakSessions.accumulateAndGet(open, Math::max);
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write(playerName + "\n");
+            out.flush();
+
+            long sentAt = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean prompt = line.startsWith(JUMP_PROMPT);
+                if ((prompt || line.equals(GAME_OVER)) && sentAt != 0) {
+                    if (turns == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, turns * 2);
+                    }
+                    latencies[turns++] = System.nanoTime() - sentAt;
+                    sentAt = 0;
+                }
+                if (prompt) {
+                    if (thinkMillis > 0) {
+                        Thread.sleep(thinkMillis);
+                    }
+                    out.write(MOVES[ThreadLocalRandom.current().nextInt(MOVES.length)] + "\n");
+                    out.flush();
+                    sentAt = System.nanoTime();
+                }
+            }
+        } finally {
+            openSessions.decrementAndGet();
+        }
+        return Arrays.copyOf(latencies, turns);
+    }
+
+    // Opens the sessions one after another and leaves each waiting for its first move, then
+    // returns the heap in use per session and the threads running, before closing them all
+    public long[] measureIdleSessions(int sessionCount) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long before = usedHeapAfterGc(memory);
+        List<SocketChannel> sessions = new ArrayList<>(sessionCount);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        byte[] prompt = JUMP_PROMPT.getBytes(StandardCharsets.UTF_8);
+        try {
+            for (int i = 0; i < sessionCount; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+                sessions.add(channel);
+                channel.write(ByteBuffer.wrap(("idle" + i + "\n").getBytes(StandardCharsets.UTF_8)));
+                buffer.clear();
+                while (!contains(buffer, prompt)) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.position(buffer.limit() - prompt.length); // keep only what could start the prompt
+                        buffer.compact();
+                    }
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("The server closed session " + i + " before its first prompt");
+                    }
+                }
+            }
+            long used = usedHeapAfterGc(memory) - before;
+            return new long[] {used / Math.max(1, sessionCount), threads.getThreadCount()};
+        } finally {
+            for (SocketChannel channel : sessions) {
+                channel.close();
+            }
+        }
+    }
+
+    private static boolean contains(ByteBuffer buffer, byte[] text) {
+        byte[] bytes = buffer.array();
+        for (int start = 0; start + text.length <= buffer.position(); start++) {
+            if (Arrays.equals(bytes, start, start + text.length, text, 0, text.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        String address = args.length > 1 ? args[1] : "embedded";
+        int thinkMillis = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        GameServer server = null;
+        OutcomeSink outcomeSink = null;
+        String host = "localhost";
+        int port;
+        if (address.equals("embedded")) {
+            outcomeSink = new OutcomeSink("loadtest-outcome.bin");
+            server = new GameServer(0, WorldLoader.load("buildings.txt"), outcomeSink);
+            port = server.getPort();
+            GameServer embedded = server;
+            Thread acceptor = new Thread(() -> {
+                try {
+                    embedded.serve();
+                } catch (IOException e) {
+                    System.out.println("Embedded server stopped: " + e.getMessage());
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        } else {
+            int colon = address.lastIndexOf(':');
+            host = address.substring(0, colon);
+            port = Integer.parseInt(address.substring(colon + 1));
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port, thinkMillis);
+        if (server != null) {
+            long[] idle = generator.measureIdleSessions(sessionCount);
+            System.out.printf("Idle sessions: %d waiting for a move hold %.1f KB of heap each, with %d threads running "
+                    + "and %d selector threads serving%n", sessionCount, idle[0] / 1024.0, idle[1], server.getSelectorThreads());
+            while (server.getActiveSessions() > 0) {
+                Thread.sleep(10); // let the server drop them before the timed run
+            }
+        }
+        long startTime = System.nanoTime();
+        long[] latencies = generator.run(sessionCount);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        if (server != null) {
+            server.close();
+            outcomeSink.close();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("Sessions: %d (%d failed), at most %d open at once%n",
+                sessionCount, generator.failedSessions.get(), generator.peakSessions.get());
+        System.out.printf("Turns: %d in %.2f s (%.0f turns/s)%n", latencies.length, seconds, latencies.length / seconds);
+        if (latencies.length > 0) {
+            System.out.printf("Turn latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
@@ -0,0 +1,18 @@
+// Chooses the jump direction for a headless game, in place of promptForJumpDirection.
+// Strategies are shared by all simulation threads, so they must not keep per-game state,
+// and they shouldn't draw from the game's random generator, or recorded games won't replay.
+public interface MoveStrategy {
+    JumpDirection chooseJumpDirection(Jumper game, int maxJumpRange);
+
+    // Looks up a strategy by the name used on the command line
+    static MoveStrategy forName(String name) {
+        switch (name.toLowerCase()) {
+            case "random":
+                return new RandomMoveStrategy();
+            case "greedy":
+                return new GreedyMoveStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown move strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+// Scans an outcome file written by OutcomeSink through memory-mapped windows.
+// next() moves to the following record and the getters read its fields in place,
+// so scanning allocates nothing unless getName() is called.
+// Usage: java OutcomeReader <outcomes.jmpo>               prints a summary
+//        java OutcomeReader --text <outcomes.jmpo> <outcome.txt>  appends the legacy text layout
+public class OutcomeReader implements AutoCloseable {
+    private static final long RECORDS_PER_WINDOW = (1L << 28) / OutcomeRecord.BYTES;
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long current = -1;
+    private int offset;
+
+    public OutcomeReader(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(OutcomeSink.HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep reading until the header is in or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != OutcomeSink.MAGIC) {
+                throw new IOException("Not an outcome file: " + fileName);
+            }
+            if (header.getInt(4) != OutcomeSink.VERSION || header.getInt(8) != OutcomeRecord.BYTES) {
+                throw new IOException("Unsupported outcome file version " + header.getInt(4));
+            }
+            recordCount = (channel.size() - OutcomeSink.HEADER_BYTES) / OutcomeRecord.BYTES;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Makes the record at the index the one next() moves to
+    public void seek(long record) {
+        current = Math.min(record, recordCount) - 1;
+        windowStart = 0;
+        windowEnd = 0;
+    }
+
+    // Moves to the next record, returning false after the last one
+    public boolean next() throws IOException {
+        if (current + 1 >= recordCount) {
+            return false;
+        }
+        current++;
+        if (current >= windowEnd) {
+            windowStart = current;
+            windowEnd = Math.min(recordCount, current + RECORDS_PER_WINDOW);
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    OutcomeSink.HEADER_BYTES + windowStart * OutcomeRecord.BYTES,
+                    (windowEnd - windowStart) * OutcomeRecord.BYTES);
+        }
+        offset = (int) (current - windowStart) * OutcomeRecord.BYTES;
+        return true;
+    }
+
+    public String getName() {
+        int length = window.get(offset);
+        char[] name = new char[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = window.getChar(offset + 1 + 2 * i);
+        }
+        return new String(name);
+    }
+
+    public boolean hasWon() {
+        return window.get(offset + 1 + 2 * OutcomeRecord.MAX_NAME_LENGTH) != 0;
+    }
+
+    public int getCharge() {
+        return window.getShort(offset + 2 + 2 * OutcomeRecord.MAX_NAME_LENGTH);
+    }
+
+    public int getNumberOfTurnsPlayed() {
+        return window.getInt(offset + 4 + 2 * OutcomeRecord.MAX_NAME_LENGTH);
+    }
+
+    public int getNumberOfFuelCellsFound() {
+        return window.getInt(offset + 8 + 2 * OutcomeRecord.MAX_NAME_LENGTH);
+    }
+
+    public OutcomeRecord getRecord() {
+        return new OutcomeRecord(getName(), getNumberOfTurnsPlayed(), getCharge(), getNumberOfFuelCellsFound(), hasWon());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Appends every record to a text file in the layout writeOutcomeStats uses
+    public static void exportLegacyText(String outcomeFile, String textFile) throws IOException {
+        try (OutcomeReader reader = new OutcomeReader(outcomeFile);
+             Writer writer = new BufferedWriter(new FileWriter(textFile, true))) {
+            while (reader.next()) {
+                writer.write(reader.getRecord().toLegacyText());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--text")) {
+            exportLegacyText(args[1], args[2]);
+        } else if (args.length == 1) {
+            long games = 0;
+            long wins = 0;
+            long turns = 0;
+            try (OutcomeReader reader = new OutcomeReader(args[0])) {
+                while (reader.next()) {
+                    games++;
+                    turns += reader.getNumberOfTurnsPlayed();
+                    if (reader.hasWon()) {
+                        wins++;
+                    }
+                }
+            }
+            System.out.printf("Games: %d%nWins: %d%nAverage turns: %.3f%n", games, wins, games == 0 ? 0.0 : (double) turns / games);
+        } else {
+            System.out.println("Usage: java OutcomeReader <outcomes.jmpo>");
+            System.out.println("       java OutcomeReader --text <outcomes.jmpo> <outcome.txt>");
+        }
+    }
+}
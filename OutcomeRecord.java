@@ -0,0 +1,78 @@
+import java.nio.*;
+
+// The outcome of one finished game. In an outcome file every record takes the same
+// number of bytes, so a reader can jump straight to any record without parsing text:
+//   name length (1 byte), name (12 chars), win flag (1 byte), charge (short),
+//   turns played (int), fuel cells found (int)
+public class OutcomeRecord {
+    public static final int MAX_NAME_LENGTH = 12;
+    public static final int BYTES = 1 + 2 * MAX_NAME_LENGTH + 1 + 2 + 4 + 4;
+
+    private final String name;
+    private final int numberOfTurnsPlayed;
+    private final int charge;
+    private final int numberOfFuelCellsFound;
+    private final boolean won;
+
+    public OutcomeRecord(String name, int numberOfTurnsPlayed, int charge, int numberOfFuelCellsFound, boolean won) {
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Player name longer than " + MAX_NAME_LENGTH + " characters: " + name);
+        }
+        if (charge < Short.MIN_VALUE || charge > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Charge out of range: " + charge);
+        }
+        this.name = name;
+        this.numberOfTurnsPlayed = numberOfTurnsPlayed;
+        this.charge = charge;
+        this.numberOfFuelCellsFound = numberOfFuelCellsFound;
+        this.won = won;
+    }
+
+    // Takes the outcome of a finished game
+    public static OutcomeRecord of(Jumper game) {
+        Player player = game.getPlayer();
+        return new OutcomeRecord(player.getName(), game.getNumberOfTurnsPlayed(), player.getCharge(),
+                game.getNumberOfFuelCellsFound(), player.getHasWon());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNumberOfTurnsPlayed() {
+        return numberOfTurnsPlayed;
+    }
+
+    public int getCharge() {
+        return charge;
+    }
+
+    public int getNumberOfFuelCellsFound() {
+        return numberOfFuelCellsFound;
+    }
+
+    public boolean hasWon() {
+        return won;
+    }
+
+    // Writes the record at the buffer's position, moving the position past it
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) name.length());
+        for (int i = 0; i < MAX_NAME_LENGTH; i++) {
+            buffer.putChar(i < name.length() ? name.charAt(i) : '\0');
+        }
+        buffer.put((byte) (won ? 1 : 0));
+        buffer.putShort((short) charge);
+        buffer.putInt(numberOfTurnsPlayed);
+        buffer.putInt(numberOfFuelCellsFound);
+    }
+
+    // The five-line layout that writeOutcomeStats has always appended to outcome.txt
+    public String toLegacyText() {
+        return "Player Name: " + name + "\n"
+                + "Number of turns played: " + numberOfTurnsPlayed + "\n"
+                + "Charge level: " + charge + "\n"
+                + "Number of fuel cells found: " + numberOfFuelCellsFound + "\n"
+                + "Win status: " + (won ? "Won" : "Lost") + "\n";
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+// Appends outcome records to a binary outcome file from a background thread.
+// Games hand their records over a bounded queue and carry on; the writer thread takes
+// whatever has queued up and writes it with one channel write per batch.
+// Once the sink is closed, or the writer has stopped on an error, submit throws instead of
+// queueing a record nobody will write.
+public class OutcomeSink implements AutoCloseable {
+    public static final int MAGIC = 0x4A4D504F; // "JMPO"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 12; // magic, version and record size
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final int MAX_BATCH = 4096;
+    private static final long FULL_QUEUE_WAIT_MILLIS = 10;
+    private static final OutcomeRecord END = new OutcomeRecord("", 0, 0, 0, false);
+
+    private final FileChannel channel;
+    private final BlockingQueue<OutcomeRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    // Submitters hold the read lock from their closed check until their record is queued, so
+    // close can't queue END between the two and leave a record behind it
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // Opens the file for appending, writing the header if the file is new
+    public OutcomeSink(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            prepareHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        writerThread = new Thread(this::writeBatches, "outcome-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void prepareHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putInt(VERSION).putInt(OutcomeRecord.BYTES).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } else {
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep reading until the header is in or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not an outcome file");
+            }
+            if (header.getInt(4) != VERSION || header.getInt(8) != OutcomeRecord.BYTES) {
+                throw new IOException("Unsupported outcome file version " + header.getInt(4));
+            }
+            // Drop a partly written record left behind by a crash, so records stay aligned
+            long records = (channel.size() - HEADER_BYTES) / OutcomeRecord.BYTES;
+            channel.truncate(HEADER_BYTES + records * OutcomeRecord.BYTES);
+        }
+        channel.position(channel.size());
+    }
+
+    // Queues the record, waiting if the writer has fallen a full queue behind. While waiting it
+    // keeps checking the writer, so it fails rather than waits forever if the writer has stopped.
+    public void submit(OutcomeRecord record) throws InterruptedException {
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Outcome sink is closed");
+            }
+            while (!queue.offer(record, FULL_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkWriter();
+            }
+            checkWriter();
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    private void checkWriter() {
+        if (failure != null) {
+            throw new IllegalStateException("Outcome sink failed", failure);
+        }
+    }
+
+    private void writeBatches() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_BATCH * OutcomeRecord.BYTES);
+        List<OutcomeRecord> batch = new ArrayList<>(MAX_BATCH);
+        boolean finished = false;
+        try {
+            while (!finished) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                for (OutcomeRecord record : batch) {
+                    if (record == END) {
+                        finished = true;
+                    } else {
+                        record.writeTo(buffer);
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Outcome writer was interrupted");
+        }
+    }
+
+    // Writes everything submitted so far and closes the file
+    @Override
+    public void close() throws IOException {
+        closing.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            while (failure == null && !queue.offer(END, FULL_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // wait for the writer to make room, unless it has stopped
+            }
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
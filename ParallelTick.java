@@ -0,0 +1,154 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Redraws the heights of a large world's active buildings on all cores, for the turn's
+// height update in updateGameConditions. The buildings are split into fixed chunks of
+// CHUNK_SIZE; the split is halved down to single chunks, and every half takes its own
+// SplittableRandom split from its parent's, so each chunk's draws depend only on the seed
+// and where the chunk is, never on how many threads ran or in what order.
+// Unlike the serial update, where the bound falls as the sweep lowers the tallest buildings,
+// every building is redrawn between 1 and the tallest height at the start of the tick, found
+// by a parallel reduction first. A seeded game is therefore repeatable in either mode, but
+// the two modes play out differently.
+public class ParallelTick {
+    public static final int CHUNK_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+
+    public ParallelTick() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelTick(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // The tallest height from start up to but not including end
+    public int getMaxHeight(World world, int start, int end) {
+        return pool.invoke(new MaxHeightTask(world, start, end));
+    }
+
+    // Gives every building from start up to but not including end a new height between 1 and
+    // the tallest of them, keeping the old one as its previous height
+    public void changeHeights(World world, int start, int end, long seed) {
+        int maxHeight = getMaxHeight(world, start, end);
+        if (maxHeight > 0) {
+            pool.invoke(new ChangeHeightsTask(world, start, end, maxHeight, new SplittableRandom(seed)));
+        }
+    }
+
+    // Ticks one large world with pools of 1, 2, 4 ... up to the core count, checks they all end
+    // with the same heights and prints the time per tick for each.
+    // Usage: java ParallelTick [buildings] [ticks]
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ArrayWorld layout = new ArrayWorld(size);
+        SplittableRandom heights = new SplittableRandom(1);
+        for (int i = 0; i < size; i++) {
+            layout.setHeight(i, heights.nextInt(20) + 1);
+        }
+
+        long expectedChecksum = 0;
+        double serialMillis = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelTick tick = new ParallelTick(pool);
+            ArrayWorld world = new ArrayWorld(layout);
+            tick.changeHeights(world, 0, size, 0); // warm up
+            long startTime = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                tick.changeHeights(world, 0, size, t);
+            }
+            double millis = (System.nanoTime() - startTime) / 1e6 / ticks;
+            pool.shutdown();
+
+            long checksum = 0;
+            for (int i = 0; i < size; i++) {
+                checksum = checksum * 31 + world.getHeight(i);
+            }
+            if (threads == 1) {
+                expectedChecksum = checksum;
+                serialMillis = millis;
+            }
+            System.out.printf("%3d threads: %8.2f ms per tick, speedup %5.2f, heights %s%n", threads, millis,
+                    serialMillis / millis, checksum == expectedChecksum ? "match" : "DIFFER");
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    // Splits on chunk boundaries, so the tree of tasks is the same for any pool
+    private static int middle(int start, int end) {
+        int chunks = (end - start + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return start + chunks / 2 * CHUNK_SIZE;
+    }
+
+    private static class MaxHeightTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final World world;
+        private final int start;
+        private final int end;
+
+        MaxHeightTask(World world, int start, int end) {
+            this.world = world;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (end - start <= CHUNK_SIZE) {
+                int maxHeight = 0;
+                for (int i = start; i < end; i++) {
+                    maxHeight = Math.max(maxHeight, world.getHeight(i));
+                }
+                return maxHeight;
+            }
+            int middle = middle(start, end);
+            MaxHeightTask left = new MaxHeightTask(world, start, middle);
+            left.fork();
+            int right = new MaxHeightTask(world, middle, end).compute();
+            return Math.max(left.join(), right);
+        }
+    }
+
+    private static class ChangeHeightsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final World world;
+        private final int start;
+        private final int end;
+        private final int maxHeight;
+        private final SplittableRandom random;
+
+        ChangeHeightsTask(World world, int start, int end, int maxHeight, SplittableRandom random) {
+            this.world = world;
+            this.start = start;
+            this.end = end;
+            this.maxHeight = maxHeight;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= CHUNK_SIZE) {
+                for (int i = start; i < end; i++) {
+                    world.setPreviousHeight(i, world.getHeight(i));
+                    world.setHeight(i, random.nextInt(maxHeight) + 1);
+                }
+                return;
+            }
+            int middle = middle(start, end);
+            // Split before forking, so which half gets which generator never depends on timing
+            SplittableRandom rightRandom = random.split();
+            ChangeHeightsTask left = new ChangeHeightsTask(world, start, middle, maxHeight, random);
+            ChangeHeightsTask right = new ChangeHeightsTask(world, middle, end, maxHeight, rightRandom);
+            invokeAll(left, right);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+public class Player {
+    private String name;
+    private int position;
+    private int charge;
+    private boolean hasWon;
+    private boolean hasLost;
+
+// Default constructor
+    public Player() {
+        this.name = "";
+        this.position = 0; // Start on the first building
+        this.charge = 10; // Initial charge is 50%
+        this.hasWon = false; // Initialize hasWon as false
+        this.hasLost = false; // Initialize hasLost as false
+    }
+
+    // Non-default constructor
+    public Player(String name) {
+        this.name = name;
+        this.position = 0; 
+        this.charge = 10;
+        this.hasWon = false; 
+        this.hasLost = false; 
+    }
+
+    // Back on the first building with the starting charge, as a new game begins
+    void reset() {
+        position = 0;
+        charge = 10;
+        hasWon = false;
+        hasLost = false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public int getCharge() {
+        return charge;
+    }
+
+    public void setCharge(int charge) {
+        this.charge = charge;
+    }
+
+    public void consumeCharge(int amount) {
+        charge -= amount;
+        if (charge < 0) {
+            charge = 0; // Ensure charge doesn't go below 0
+        }
+    }
+
+    public void rechargeDevice(int amount) {
+        charge += amount;
+        if (charge > 20) {
+            charge = 20; // Ensure charge doesn't exceed 20
+        }
+    }
+
+    public boolean getHasWon() {
+        return hasWon;
+    }
+
+    public void setHasWon(boolean hasWon) {
+        this.hasWon = hasWon;
+    }
+
+    public boolean getHasLost() {
+        return hasLost;
+    }
+
+    public void setHasLost(boolean hasLost) {
+        this.hasLost = hasLost;
+    }
+
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+
+// The positions of the buildings that have one flag set, such as the fuel cells or the web,
+// kept in ascending order in a growable int array. Worlds keep one per flag up to date as
+// flags change, so the few hazards and pickups in a huge world can be found without a scan.
+// Adding and removing cost O(number of positions), which is small for hazards.
+public class PositionSet {
+    private int[] positions;
+    private int size;
+
+    public PositionSet() {
+        positions = new int[4];
+    }
+
+    // Copy constructor
+    public PositionSet(PositionSet other) {
+        positions = Arrays.copyOf(other.positions, Math.max(4, other.size));
+        size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The i-th position, lowest first
+    public int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Position " + i + " of " + size);
+        }
+        return positions[i];
+    }
+
+    public boolean contains(int position) {
+        return Arrays.binarySearch(positions, 0, size, position) >= 0;
+    }
+
+    // How many positions lie from start up to but not including end
+    public int count(int start, int end) {
+        return lowerBound(end) - lowerBound(start);
+    }
+
+    // The n-th position, counting from 0, that is NOT in the set
+    public int nthAbsent(int n) {
+        return nthAbsent(0, n);
+    }
+
+    // The n-th position from start on, counting from 0, that is NOT in the set
+    public int nthAbsent(int start, int n) {
+        int position = start + n;
+        for (int i = lowerBound(start); i < size && positions[i] <= position; i++) {
+            position++;
+        }
+        return position;
+    }
+
+    // The index of the first position at or above the given one
+    private int lowerBound(int position) {
+        int i = Arrays.binarySearch(positions, 0, size, position);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    void add(int position) {
+        int i = Arrays.binarySearch(positions, 0, size, position);
+        if (i >= 0) {
+            return;
+        }
+        i = -i - 1;
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        System.arraycopy(positions, i, positions, i + 1, size - i);
+        positions[i] = position;
+        size++;
+    }
+
+    void remove(int position) {
+        int i = Arrays.binarySearch(positions, 0, size, position);
+        if (i < 0) {
+            return;
+        }
+        System.arraycopy(positions, i + 1, positions, i, size - i - 1);
+        size--;
+    }
+
+    // Makes this set the same as the other, reusing the array when it is big enough
+    void copyFrom(PositionSet other) {
+        if (positions.length < other.size) {
+            positions = Arrays.copyOf(other.positions, other.size);
+        } else {
+            System.arraycopy(other.positions, 0, positions, 0, other.size);
+        }
+        size = other.size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void update(int position, boolean present) {
+        if (present) {
+            add(position);
+        } else {
+            remove(position);
+        }
+    }
+
+    // Builds the set from a bitset in one ascending pass
+    static PositionSet of(BitSet bits) {
+        PositionSet set = new PositionSet();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            if (set.size == set.positions.length) {
+                set.positions = Arrays.copyOf(set.positions, set.size * 2);
+            }
+            set.positions[set.size++] = i;
+        }
+        return set;
+    }
+}
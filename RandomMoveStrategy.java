@@ -0,0 +1,19 @@
+// Picks any allowed direction. The pick is hashed from the game's state instead of being drawn
+// from the game's random generator, so the world's random events are the same whatever the
+// strategy does and a recorded game replays from its moves alone.
+public class RandomMoveStrategy implements MoveStrategy {
+    public JumpDirection chooseJumpDirection(Jumper game, int maxJumpRange) {
+        Player player = game.getPlayer();
+        long hash = BatchSimulator.gameSeed(game.getNumberOfTurnsPlayed(),
+                ((long) player.getPosition() << 32) ^ (player.getCharge() << 16) ^ maxJumpRange);
+        int count = JumpDirection.count();
+        int first = (int) Math.floorMod(hash, (long) count);
+        for (int i = 0; i < count; i++) {
+            JumpDirection jumpDirection = JumpDirection.forCode((first + i) % count);
+            if (game.isJumpAllowed(jumpDirection, maxJumpRange)) {
+                return jumpDirection;
+            }
+        }
+        return JumpDirection.STAY;
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Plays a Jumper game in real time. A scheduled ticker thread moves the world on at a fixed
+// rate whether or not the player has typed anything, and the player's input is read on a
+// thread of its own. The two threads hand over only the move: the input thread leaves the
+// latest one in an AtomicReference and the ticker takes it at the next tick boundary, so the
+// buildings and the player are only ever touched by the ticker. Other threads see them
+// through a GameSnapshot the ticker publishes after every tick, and spectators follow them
+// through a StateFeed the ticker also publishes to.
+// A tick with no move is an idle turn: the player stays put without using the jumper and
+// without landing again, so waiting on a web or a frozen roof costs nothing, while the
+// heights, web, freeze and fuel cells still change around them.
+// Each tick draws at most one frame; when ticks fall behind, the catch-up ticks skip theirs.
+public class RealTimeGame {
+    public static final long DEFAULT_TICK_MILLIS = 1_000;
+
+    private final Jumper game;
+    private final GameConsole console;
+    private final long tickNanos;
+    private final AtomicReference<JumpDirection> pendingMove = new AtomicReference<>();
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private final StateFeed feed;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile byte[] state;
+    private volatile boolean playerLeft;
+    private volatile RuntimeException failure;
+
+    // Ticker thread only
+    private long firstTickTime;
+    private long ticks;
+
+    public RealTimeGame(Jumper game, long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms: " + tickMillis);
+        }
+        this.game = game;
+        this.console = game.getConsole();
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.feed = new StateFeed(game);
+    }
+
+    // Plays the game to the end: welcome, name, then ticks until the player wins or loses
+    public void play() throws InterruptedException {
+        game.printWelcome();
+        game.setUpGame();
+        console.println("The world moves every " + TimeUnit.NANOSECONDS.toMillis(tickNanos)
+                + " ms. Type left, right or stay at any time; your move is made on the next tick.");
+        state = GameSnapshot.save(game);
+        feed.publish();
+        game.displayGameInterface(null);
+        console.flush();
+
+        Thread input = new Thread(this::readInput, "jumper-input");
+        input.setDaemon(true);
+        input.start();
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jumper-ticker");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+        firstTickTime = System.nanoTime() + tickNanos;
+        ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        try {
+            finished.await();
+        } finally {
+            ticker.shutdownNow();
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        game.finishGame(null);
+    }
+
+    // Hands a move to the ticker from any thread; a later move before the tick replaces it
+    public void submitMove(JumpDirection jumpDirection) {
+        pendingMove.set(jumpDirection);
+    }
+
+    // A copy of the game as of the last tick, safe to call from any thread
+    public Jumper getState() throws IOException {
+        return GameSnapshot.restore(state);
+    }
+
+    // The state stream for spectators; subscribe from any thread
+    public StateFeed getFeed() {
+        return feed;
+    }
+
+    // How late each tick started, in nanoseconds
+    public LatencyHistogram getJitter() {
+        return jitter;
+    }
+
+    private void readInput() {
+        try {
+            while (finished.getCount() > 0) {
+                JumpDirection jumpDirection = JumpDirection.parse(console.readLine());
+                if (jumpDirection != null) {
+                    submitMove(jumpDirection);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            playerLeft = true; // no more input, so nobody is left to play
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long scheduled = firstTickTime + ticks * tickNanos;
+        ticks++;
+        jitter.record(now - scheduled);
+        try {
+            Player player = game.getPlayer();
+            if (playerLeft) {
+                player.setHasLost(true);
+            } else {
+                int maxJumpRange = game.getWorld().getHeight(player.getPosition());
+                JumpDirection jumpDirection = pendingMove.getAndSet(null);
+                if (jumpDirection != null && !game.isJumpAllowed(jumpDirection, maxJumpRange)) {
+                    console.println("Can't jump that far " + jumpDirection + ".");
+                    jumpDirection = null;
+                }
+                if (jumpDirection != null) {
+                    game.playTurn(jumpDirection, maxJumpRange);
+                } else {
+                    game.idleTurn();
+                }
+            }
+            state = GameSnapshot.save(game);
+            feed.publish();
+            if (player.getHasWon() || player.getHasLost()) {
+                finished.countDown(); // play() draws the last frame
+                return;
+            }
+            // Only draw when the next tick isn't already due, so a late ticker catches up without drawing
+            if (System.nanoTime() - scheduled < tickNanos) {
+                long startTime = GameMetrics.start();
+                game.displayGameInterface(null);
+                console.flush();
+                GameMetrics.stop(GameMetrics.Phase.DISPLAY, startTime);
+            }
+        } catch (RuntimeException e) {
+            failure = e; // an exception would silently cancel the schedule, so end the game with it
+            finished.countDown();
+        }
+    }
+}
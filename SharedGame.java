@@ -0,0 +1,305 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+// Several players on one SharedWorld at once. Each player is moved by one thread at a time,
+// and different players may move at the same time as each other and as the world clock.
+// A move is the player's half of a Jumper turn: the jump, then landing on the roof, with the
+// web and the fuel cell taken by an atomic claim so two players landing together can't both
+// get one. tick is the world's half, played by a Jumper on the shared world from one clock
+// thread: new fuel cells every third tick, new heights, and the web and freeze moving on.
+// Nothing is locked: a move reads and claims single buildings, and the clock changes them one
+// compare-and-set at a time.
+public class SharedGame {
+    private static final long TICK_PAUSE_NANOS = 20_000;
+
+    private final SharedWorld world;
+    private final Jumper clock;
+    private final PlayerState[] players;
+
+    public SharedGame(World layout, int playerCount, long seed) {
+        world = new SharedWorld(layout);
+        clock = new Jumper(world, new Player("world clock"), seed);
+        players = new PlayerState[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new PlayerState(new Player("player" + (i + 1)));
+        }
+    }
+
+    public SharedWorld getWorld() {
+        return world;
+    }
+
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    public Player getPlayer(int index) {
+        return players[index].player;
+    }
+
+    public int getFuelCellsFound(int index) {
+        return players[index].fuelCellsFound;
+    }
+
+    public int getWebsHit(int index) {
+        return players[index].websHit;
+    }
+
+    public int getExitPortalBuildingIndex() {
+        return clock.getExitPortalBuildingIndex();
+    }
+
+    // Ticks the world clock has played
+    public int getTicks() {
+        return clock.getNumberOfTurnsPlayed();
+    }
+
+    // Jumps and lands one player, as performJump and updateGameConditions do for a Jumper.
+    // A jump past the first or last building ends on it.
+    public void move(int index, JumpDirection jumpDirection) {
+        PlayerState state = players[index];
+        Player player = state.player;
+        if (player.getHasWon() || player.getHasLost()) {
+            throw new IllegalStateException(player.getName() + "'s game is over");
+        }
+        int position = player.getPosition();
+        int height = world.getHeight(position);
+        int target = Math.max(0, Math.min(world.size() - 1, position + jumpDirection.offset(height)));
+        int jumpCost = Math.abs(height - world.getHeight(target)) + 1;
+        if (player.getCharge() >= jumpCost) {
+            player.consumeCharge(jumpCost);
+            player.setPosition(target);
+            position = target;
+        } else {
+            player.setHasLost(true);
+        }
+
+        if (world.claimWeb(position)) {
+            state.websHit++;
+            player.consumeCharge(5);
+        }
+        boolean frozen = world.isFrozen(position);
+        if (frozen) {
+            player.consumeCharge(1);
+        }
+        if (world.hasExitPortal(position) && !frozen) {
+            player.setHasWon(true);
+        }
+        if (world.claimFuelCell(position)) {
+            state.fuelCellsFound++;
+            player.rechargeDevice(5);
+        }
+        if (player.getCharge() == 0) {
+            player.setHasLost(true);
+        }
+    }
+
+    // Moves the world on; one thread at a time
+    public void tick() {
+        world.syncPositions();
+        clock.tickWorld();
+    }
+
+    // Puts a player whose game is over back at the first building with a full jumper
+    public void rejoin(int index) {
+        players[index].player.reset();
+    }
+
+    // Races many players over the buildings while the clock ticks and checks the roofs against
+    // what the players collected, first refill by refill, then with the clock running freely.
+    // Then times moves on a large world with 1, 2, 4 ... up to the core count threads.
+    // Exits with status 1 if anything was collected twice or lost; mvn verify runs it as a gate.
+    // Usage: java SharedGame [threads] [moves per thread] [buildings file]
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(8, 2 * cores);
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        World layout = WorldLoader.load(args.length > 2 ? args[2] : "buildings.txt");
+
+        long wrongRoofs = checkRefills(new SharedGame(layout, threads * 8, 1), threads, moves);
+
+        SharedGame game = new SharedGame(layout, threads * 8, 1);
+        run(game, threads, moves, true);
+        SharedWorld world = game.getWorld();
+        long fuelCellsClaimed = 0;
+        long websClaimed = 0;
+        for (int i = 0; i < game.getPlayerCount(); i++) {
+            fuelCellsClaimed += game.getFuelCellsFound(i);
+            websClaimed += game.getWebsHit(i);
+        }
+        long fuelCellsLeft = 0;
+        long websLeft = 0;
+        for (int i = 0; i < world.size(); i++) {
+            fuelCellsLeft += world.hasFuelCell(i) ? 1 : 0;
+            websLeft += world.hasWeb(i) ? 1 : 0;
+        }
+        long extraFuelCells = fuelCellsClaimed + world.getFuelCellsRemoved() + fuelCellsLeft - world.getFuelCellsPlaced();
+        long extraWebs = websClaimed + world.getWebsRemoved() + websLeft - world.getWebsPlaced();
+        System.out.printf("%d threads, %d players, %d buildings, %d ticks%n",
+                threads, game.getPlayerCount(), world.size(), game.getTicks());
+        System.out.printf("fuel cells: %d placed, %d claimed, %d removed by the clock, %d left, %d collected twice%n",
+                world.getFuelCellsPlaced(), fuelCellsClaimed, world.getFuelCellsRemoved(), fuelCellsLeft, extraFuelCells);
+        System.out.printf("webs:       %d placed, %d claimed, %d removed by the clock, %d left, %d collected twice%n",
+                world.getWebsPlaced(), websClaimed, world.getWebsRemoved(), websLeft, extraWebs);
+
+        ArrayWorld large = new ArrayWorld(100_000);
+        SplittableRandom heights = new SplittableRandom(1);
+        for (int i = 0; i < large.size(); i++) {
+            large.setHeight(i, heights.nextInt(10) + 1);
+            large.setHasFuelCell(i, heights.nextInt(8) == 0);
+        }
+        double singleThreadRate = 0;
+        for (int n = 1; ; n = Math.min(n * 2, cores)) {
+            SharedGame timed = new SharedGame(large, n * 8, 1);
+            run(timed, n, moves / 4, false); // warm up
+            long startTime = System.nanoTime();
+            run(timed, n, moves, false);
+            double rate = (double) n * moves / (System.nanoTime() - startTime) * 1e3;
+            if (n == 1) {
+                singleThreadRate = rate;
+            }
+            System.out.printf("%3d threads: %7.2f M moves/s, speedup %.2f%n", n, rate, rate / singleThreadRate);
+            if (n == cores) {
+                break;
+            }
+        }
+        if (wrongRoofs != 0 || extraFuelCells != 0 || extraWebs != 0) {
+            System.exit(1);
+        }
+    }
+
+    // Plays the moves a refill at a time. The clock refills the roofs while the players wait,
+    // then plays the two ticks up to the next refill while they race for the fuel cells, moving
+    // heights, webs and the freeze on the same buildings the players are claiming from. Each
+    // claim is noted against the building the player landed on, so after every refill each roof
+    // must have lost its fuel cell to exactly one claim or kept it: a claim two players won, or
+    // a clock change that put back or wiped a claimed flag, shows up as a wrong roof.
+    // Returns the number of wrong roofs.
+    private static long checkRefills(SharedGame game, int threads, int moves) throws Exception {
+        final int movesPerRefill = 200;
+        SharedWorld world = game.getWorld();
+        int playersPerThread = game.getPlayerCount() / threads;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicIntegerArray claims = new AtomicIntegerArray(world.size());
+        boolean[] fuelCellsBefore = new boolean[world.size()];
+        SplittableRandom[] randoms = new SplittableRandom[threads];
+        for (int t = 0; t < threads; t++) {
+            randoms[t] = new SplittableRandom(t);
+        }
+        long refills = 0;
+        long claimed = 0;
+        long wrongRoofs = 0;
+        try {
+            for (int played = 0; played < moves; played += movesPerRefill) {
+                do {
+                    game.tick();
+                } while (game.getTicks() % 3 != 1); // the tick that just ran refilled the roofs
+                for (int i = 0; i < world.size(); i++) {
+                    fuelCellsBefore[i] = world.hasFuelCell(i);
+                    claims.set(i, 0);
+                }
+                List<Callable<Void>> movers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int first = t * playersPerThread;
+                    SplittableRandom random = randoms[t];
+                    movers.add(() -> {
+                        for (int i = 0; i < movesPerRefill; i++) {
+                            int index = first + i % playersPerThread;
+                            Player player = game.getPlayer(index);
+                            if (player.getHasWon() || player.getHasLost()) {
+                                game.rejoin(index);
+                            }
+                            int found = game.getFuelCellsFound(index);
+                            game.move(index, JumpDirection.forCode(random.nextInt(JumpDirection.count())));
+                            if (game.getFuelCellsFound(index) != found) {
+                                claims.incrementAndGet(player.getPosition());
+                            }
+                        }
+                        return null;
+                    });
+                }
+                // The clock stops short of the next refill, so only players take fuel cells meanwhile
+                Thread clock = new Thread(() -> {
+                    while (game.getTicks() % 3 != 0) {
+                        game.tick();
+                        LockSupport.parkNanos(TICK_PAUSE_NANOS);
+                    }
+                }, "world-clock");
+                clock.start();
+                for (Future<Void> mover : pool.invokeAll(movers)) {
+                    mover.get();
+                }
+                clock.join();
+                refills++;
+                for (int i = 0; i < world.size(); i++) {
+                    claimed += claims.get(i);
+                    if (claims.get(i) + (world.hasFuelCell(i) ? 1 : 0) != (fuelCellsBefore[i] ? 1 : 0)) {
+                        wrongRoofs++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("%d refills raced by %d players on %d threads: %d fuel cells claimed, %d wrong roofs%n",
+                refills, game.getPlayerCount(), threads, claimed, wrongRoofs);
+        return wrongRoofs;
+    }
+
+    // Each thread moves its own players in turn, picking moves from a random generator of its
+    // own, and brings players whose game is over back in; the clock ticks until they are done
+    private static void run(SharedGame game, int threads, int moves, boolean ticking) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int playersPerThread = game.getPlayerCount() / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> movers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t * playersPerThread;
+            SplittableRandom random = new SplittableRandom(t);
+            movers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < moves; i++) {
+                    int index = first + i % playersPerThread;
+                    Player player = game.getPlayer(index);
+                    if (player.getHasWon() || player.getHasLost()) {
+                        game.rejoin(index);
+                    }
+                    game.move(index, JumpDirection.forCode(random.nextInt(JumpDirection.count())));
+                }
+                return null;
+            }));
+        }
+        Thread clock = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                game.tick();
+                LockSupport.parkNanos(TICK_PAUSE_NANOS); // let the players at the fuel cells before the next refill
+            }
+        }, "world-clock");
+        if (ticking) {
+            clock.start();
+        }
+        start.countDown();
+        try {
+            for (Future<?> mover : movers) {
+                mover.get();
+            }
+        } finally {
+            clock.interrupt();
+            clock.join();
+            pool.shutdown();
+        }
+    }
+
+    // One player and what they have collected, written only by the thread moving them
+    private static class PlayerState {
+        final Player player;
+        int fuelCellsFound;
+        int websHit;
+
+        PlayerState(Player player) {
+            this.player = player;
+        }
+    }
+}
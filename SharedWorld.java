@@ -0,0 +1,211 @@
+import java.util.concurrent.atomic.*;
+
+// A world that several players share at once, each jumping on a thread of their own while
+// one world clock moves the world on (see SharedGame). Every building is packed into one long
+// of an AtomicLongArray:
+//   bits 0-15 height, bits 16-31 previous height (each 0 to Short.MAX_VALUE, as in ArrayWorld),
+//   bits 32-35 flags (1 portal, 2 fuel cell, 4 web, 8 frozen)
+// and every change to it is a compare-and-set, so two changes to one building never lose
+// each other and no lock is taken. Players take a fuel cell or a web off a roof with
+// claimFuelCell and claimWeb: whoever's compare-and-set clears the flag gets it, and anyone
+// landing on the same roof at the same time gets false, so nothing is ever collected twice.
+// The flag positions belong to the clock. The setters keep them up to date, but a claim only
+// clears the bit, so until the clock calls syncPositions they may still list buildings
+// players have since claimed.
+public class SharedWorld implements World {
+    private static final long HEIGHT_MASK = 0xFFFFL;
+    private static final int PREVIOUS_HEIGHT_SHIFT = 16;
+    private static final int FLAGS_SHIFT = 32;
+    private static final long EXIT_PORTAL = 1L << FLAGS_SHIFT;
+    private static final long FUEL_CELL = 2L << FLAGS_SHIFT;
+    private static final long WEB = 4L << FLAGS_SHIFT;
+    private static final long FROZEN = 8L << FLAGS_SHIFT;
+
+    private final AtomicLongArray buildings;
+    // Clock thread only
+    private final PositionSet exitPortals = new PositionSet();
+    private final PositionSet fuelCells = new PositionSet();
+    private final PositionSet webs = new PositionSet();
+    private final PositionSet frozen = new PositionSet();
+    // Every fuel cell and web put on a roof, and every one taken off by the clock rather than claimed
+    private final LongAdder fuelCellsPlaced = new LongAdder();
+    private final LongAdder fuelCellsRemoved = new LongAdder();
+    private final LongAdder websPlaced = new LongAdder();
+    private final LongAdder websRemoved = new LongAdder();
+
+    public SharedWorld(int size) {
+        buildings = new AtomicLongArray(size);
+    }
+
+    // Copy constructor for any world
+    public SharedWorld(World other) {
+        this(other.size());
+        for (int i = 0; i < other.size(); i++) {
+            buildings.set(i, checkHeight(other.getHeight(i))
+                    | checkHeight(other.getPreviousHeight(i)) << PREVIOUS_HEIGHT_SHIFT
+                    | (other.hasExitPortal(i) ? EXIT_PORTAL : 0)
+                    | (other.hasFuelCell(i) ? FUEL_CELL : 0)
+                    | (other.hasWeb(i) ? WEB : 0)
+                    | (other.isFrozen(i) ? FROZEN : 0));
+        }
+        exitPortals.copyFrom(other.getExitPortals());
+        fuelCells.copyFrom(other.getFuelCells());
+        webs.copyFrom(other.getWebs());
+        frozen.copyFrom(other.getFrozenBuildings());
+        fuelCellsPlaced.add(fuelCells.size());
+        websPlaced.add(webs.size());
+    }
+
+    public int size() {
+        return buildings.length();
+    }
+
+    public int getHeight(int index) {
+        return (int) (buildings.get(index) & HEIGHT_MASK);
+    }
+
+    public void setHeight(int index, int height) {
+        setField(index, HEIGHT_MASK, checkHeight(height));
+    }
+
+    public int getPreviousHeight(int index) {
+        return (int) (buildings.get(index) >>> PREVIOUS_HEIGHT_SHIFT & HEIGHT_MASK);
+    }
+
+    public void setPreviousHeight(int index, int previousHeight) {
+        setField(index, HEIGHT_MASK << PREVIOUS_HEIGHT_SHIFT, checkHeight(previousHeight) << PREVIOUS_HEIGHT_SHIFT);
+    }
+
+    public boolean hasExitPortal(int index) {
+        return (buildings.get(index) & EXIT_PORTAL) != 0;
+    }
+
+    public void setHasExitPortal(int index, boolean hasExitPortal) {
+        setFlag(index, EXIT_PORTAL, hasExitPortal);
+        exitPortals.update(index, hasExitPortal);
+    }
+
+    public boolean hasFuelCell(int index) {
+        return (buildings.get(index) & FUEL_CELL) != 0;
+    }
+
+    public void setHasFuelCell(int index, boolean hasFuelCell) {
+        if (setFlag(index, FUEL_CELL, hasFuelCell)) {
+            (hasFuelCell ? fuelCellsPlaced : fuelCellsRemoved).increment();
+        }
+        fuelCells.update(index, hasFuelCell);
+    }
+
+    public boolean hasWeb(int index) {
+        return (buildings.get(index) & WEB) != 0;
+    }
+
+    public void setHasWeb(int index, boolean hasWeb) {
+        if (setFlag(index, WEB, hasWeb)) {
+            (hasWeb ? websPlaced : websRemoved).increment();
+        }
+        webs.update(index, hasWeb);
+    }
+
+    public boolean isFrozen(int index) {
+        return (buildings.get(index) & FROZEN) != 0;
+    }
+
+    public void setFrozen(int index, boolean isFrozen) {
+        setFlag(index, FROZEN, isFrozen);
+        frozen.update(index, isFrozen);
+    }
+
+    // Takes the fuel cell off the roof; true only for the one caller who took it
+    public boolean claimFuelCell(int index) {
+        return setFlag(index, FUEL_CELL, false);
+    }
+
+    // Takes the web off the roof; true only for the one caller who was caught in it
+    public boolean claimWeb(int index) {
+        return setFlag(index, WEB, false);
+    }
+
+    // Drops the buildings players have claimed from the flag positions; the clock calls this
+    // before it reads them
+    public void syncPositions() {
+        dropCleared(fuelCells, FUEL_CELL);
+        dropCleared(webs, WEB);
+    }
+
+    public long getFuelCellsPlaced() {
+        return fuelCellsPlaced.sum();
+    }
+
+    public long getFuelCellsRemoved() {
+        return fuelCellsRemoved.sum();
+    }
+
+    public long getWebsPlaced() {
+        return websPlaced.sum();
+    }
+
+    public long getWebsRemoved() {
+        return websRemoved.sum();
+    }
+
+    public PositionSet getExitPortals() {
+        return exitPortals;
+    }
+
+    public PositionSet getFuelCells() {
+        return fuelCells;
+    }
+
+    public PositionSet getWebs() {
+        return webs;
+    }
+
+    public PositionSet getFrozenBuildings() {
+        return frozen;
+    }
+
+    public Building getBuilding(int index) {
+        return new WorldBuilding(this, index);
+    }
+
+    public World copy() {
+        return new SharedWorld(this);
+    }
+
+    private void dropCleared(PositionSet positions, long flag) {
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            int position = positions.get(i);
+            if ((buildings.get(position) & flag) == 0) {
+                positions.remove(position);
+            }
+        }
+    }
+
+    private void setField(int index, long mask, long value) {
+        long current;
+        do {
+            current = buildings.get(index);
+        } while (!buildings.compareAndSet(index, current, current & ~mask | value));
+    }
+
+    // Sets or clears the flag; true when this call changed it
+    private boolean setFlag(int index, long flag, boolean set) {
+        long current;
+        do {
+            current = buildings.get(index);
+            if (((current & flag) != 0) == set) {
+                return false;
+            }
+        } while (!buildings.compareAndSet(index, current, current ^ flag));
+        return true;
+    }
+
+    // Heights have the same range as in ArrayWorld, so a world copied either way round keeps them
+    private static long checkHeight(int height) {
+        if (height < 0 || height > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Building height out of range: " + height);
+        }
+        return height;
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+// Rebuilds a game from a StateEncoder stream: a keyframe restores the whole game and each
+// delta after it replays one turn's changes, so after every frame the game matches the
+// encoder's exactly, down to the random state and previous heights.
+// A delta is only accepted for the turn after the one it has; a missed frame, or a frame that
+// doesn't read, drops the game until the next keyframe, which getGame shows as null.
+public class StateDecoder {
+    private Jumper game;
+
+    // The rebuilt game, or null before the first keyframe or after a frame was lost
+    public Jumper getGame() {
+        return game;
+    }
+
+    public void apply(byte[] frame) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            int type = buffer.get();
+            if (type == StateEncoder.KEYFRAME) {
+                game = GameSnapshot.restore(Arrays.copyOfRange(frame, 1, frame.length));
+            } else if (type == StateEncoder.DELTA) {
+                applyDelta(buffer);
+            } else {
+                throw new IOException("Unknown frame type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            game = null;
+            throw new EOFException("State frame is truncated");
+        } catch (IOException | RuntimeException e) {
+            game = null;
+            throw e;
+        }
+    }
+
+    private void applyDelta(ByteBuffer buffer) throws IOException {
+        if (game == null) {
+            throw new IOException("A delta needs a keyframe before it");
+        }
+        int numberOfTurnsPlayed = buffer.getInt();
+        if (numberOfTurnsPlayed != game.getNumberOfTurnsPlayed() + 1) {
+            throw new IOException("Delta for turn " + numberOfTurnsPlayed + " doesn't follow turn "
+                    + game.getNumberOfTurnsPlayed());
+        }
+        long randomState = buffer.getLong();
+        int numberOfFuelCellsFound = buffer.getInt();
+        int exitPortalBuildingIndex = buffer.getInt();
+        int position = buffer.getInt();
+        int charge = buffer.getInt();
+        int playerFlags = buffer.get();
+
+        // Every height was redrawn, so the heights before the turn are now the previous ones
+        World world = game.getWorld();
+        int size = world.size();
+        for (int i = 0; i < size; i++) {
+            world.setPreviousHeight(i, world.getHeight(i));
+        }
+        int changed = StateEncoder.getVarint(buffer);
+        int index = -1;
+        for (int n = 0; n < changed; n++) {
+            index = nextIndex(buffer, index, size);
+            world.setHeight(index, StateEncoder.getVarint(buffer));
+        }
+        int flipped = StateEncoder.getVarint(buffer);
+        index = -1;
+        for (int n = 0; n < flipped; n++) {
+            index = nextIndex(buffer, index, size);
+            int flags = buffer.get();
+            world.setHasExitPortal(index, (flags & 1) != 0);
+            world.setHasFuelCell(index, (flags & 2) != 0);
+            world.setHasWeb(index, (flags & 4) != 0);
+            world.setFrozen(index, (flags & 8) != 0);
+        }
+
+        Player player = game.getPlayer();
+        player.setPosition(position);
+        player.setCharge(charge);
+        player.setHasWon((playerFlags & 1) != 0);
+        player.setHasLost((playerFlags & 2) != 0);
+        game.getRandom().setState(randomState);
+        game.setProgress(numberOfTurnsPlayed, numberOfFuelCellsFound, exitPortalBuildingIndex);
+    }
+
+    private static int nextIndex(ByteBuffer buffer, int index, int size) throws IOException {
+        int next = index + 1 + StateEncoder.getVarint(buffer);
+        if (next <= index || next >= size) {
+            throw new IOException("State frame names building " + next + " of " + size);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,184 @@
+import java.nio.*;
+import java.util.*;
+
+// Encodes a running game as a stream of frames for spectators: one keyframe, then one small
+// delta per turn. StateDecoder rebuilds the exact game from them, and StateFeed fans each
+// frame out to its subscribers.
+// A frame starts with its type (byte). A KEYFRAME is followed by a GameSnapshot of the game.
+// A DELTA carries what a turn can change:
+//   turns played (int), random state (long), fuel cells found (int), exit portal index (int),
+//   position (int), charge (int), player flags (byte: 1 won, 2 lost),
+//   changed heights: count, then per building the index gap and the new height,
+//   flag flips: count, then per building the index gap and its new flags (byte: 1 portal,
+//   2 fuel cell, 4 web, 8 frozen),
+// where counts, gaps and heights are varints and a gap is the distance from the building
+// after the previous one. A turn redraws every height and keeps the old one as the previous
+// height, so the changed heights are read straight off the world; the flags are few, so the
+// flips come from comparing the flag positions with those last sent.
+// A delta only follows the turn after the last frame, so a skipped turn, a restarted game or an
+// endless ChunkedWorld, whose buildings come and go with its chunks, gets a keyframe instead.
+public class StateEncoder {
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+    private static final int DELTA_HEADER_BYTES = 1 + 4 + 8 + 4 + 4 + 4 + 4 + 1;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final Jumper game;
+    // The flag positions as of the last frame
+    private final PositionSet sentExitPortals = new PositionSet();
+    private final PositionSet sentFuelCells = new PositionSet();
+    private final PositionSet sentWebs = new PositionSet();
+    private final PositionSet sentFrozen = new PositionSet();
+    private int[] flips = new int[16];
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private int sentTurn = -1;
+
+    public StateEncoder(Jumper game) {
+        this.game = game;
+    }
+
+    // A keyframe of the game as it is now
+    public byte[] keyframe() {
+        byte[] snapshot = GameSnapshot.save(game);
+        byte[] frame = new byte[1 + snapshot.length];
+        frame[0] = KEYFRAME;
+        System.arraycopy(snapshot, 0, frame, 1, snapshot.length);
+        remember();
+        return frame;
+    }
+
+    // The frame for the turn just played: a delta after the last frame, otherwise a keyframe
+    public byte[] nextFrame() {
+        World world = game.getWorld();
+        if (sentTurn < 0 || game.getNumberOfTurnsPlayed() != sentTurn + 1 || world instanceof ChunkedWorld) {
+            return keyframe();
+        }
+        Player player = game.getPlayer();
+        int size = world.size();
+        int flipCount = findFlips(world);
+        ensureScratch(DELTA_HEADER_BYTES + 2 * MAX_VARINT_BYTES + (size + flipCount) * 2 * MAX_VARINT_BYTES);
+        ByteBuffer buffer = scratch;
+        buffer.clear();
+        buffer.put(DELTA);
+        buffer.putInt(game.getNumberOfTurnsPlayed());
+        buffer.putLong(game.getRandom().getState());
+        buffer.putInt(game.getNumberOfFuelCellsFound());
+        buffer.putInt(game.getExitPortalBuildingIndex());
+        buffer.putInt(player.getPosition());
+        buffer.putInt(player.getCharge());
+        buffer.put((byte) ((player.getHasWon() ? 1 : 0) | (player.getHasLost() ? 2 : 0)));
+
+        int changed = 0;
+        for (int i = 0; i < size; i++) {
+            if (world.getHeight(i) != world.getPreviousHeight(i)) {
+                changed++;
+            }
+        }
+        putVarint(buffer, changed);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            int height = world.getHeight(i);
+            if (height != world.getPreviousHeight(i)) {
+                putVarint(buffer, i - next);
+                putVarint(buffer, height);
+                next = i + 1;
+            }
+        }
+
+        putVarint(buffer, flipCount);
+        next = 0;
+        for (int i = 0; i < flipCount; i++) {
+            int position = flips[i];
+            putVarint(buffer, position - next);
+            buffer.put((byte) flags(world, position));
+            next = position + 1;
+        }
+        remember();
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static int flags(World world, int position) {
+        return (world.hasExitPortal(position) ? 1 : 0)
+                | (world.hasFuelCell(position) ? 2 : 0)
+                | (world.hasWeb(position) ? 4 : 0)
+                | (world.isFrozen(position) ? 8 : 0);
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException(); // too long to be a varint of this format
+    }
+
+    // Collects the positions whose flags changed since the last frame into flips, in order
+    private int findFlips(World world) {
+        int count = 0;
+        count = addDifferences(sentExitPortals, world.getExitPortals(), count);
+        count = addDifferences(sentFuelCells, world.getFuelCells(), count);
+        count = addDifferences(sentWebs, world.getWebs(), count);
+        count = addDifferences(sentFrozen, world.getFrozenBuildings(), count);
+        Arrays.sort(flips, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || flips[unique - 1] != flips[i]) {
+                flips[unique++] = flips[i];
+            }
+        }
+        return unique;
+    }
+
+    // Adds the positions in one set but not the other, walking both in order
+    private int addDifferences(PositionSet sent, PositionSet current, int count) {
+        int i = 0;
+        int j = 0;
+        while (i < sent.size() || j < current.size()) {
+            int a = i < sent.size() ? sent.get(i) : Integer.MAX_VALUE;
+            int b = j < current.size() ? current.get(j) : Integer.MAX_VALUE;
+            if (a == b) {
+                i++;
+                j++;
+                continue;
+            }
+            if (count == flips.length) {
+                flips = Arrays.copyOf(flips, count * 2);
+            }
+            if (a < b) {
+                flips[count++] = a;
+                i++;
+            } else {
+                flips[count++] = b;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private void remember() {
+        World world = game.getWorld();
+        sentExitPortals.copyFrom(world.getExitPortals());
+        sentFuelCells.copyFrom(world.getFuelCells());
+        sentWebs.copyFrom(world.getWebs());
+        sentFrozen.copyFrom(world.getFrozenBuildings());
+        sentTurn = game.getNumberOfTurnsPlayed();
+    }
+
+    private void ensureScratch(int bytes) {
+        if (scratch.capacity() < bytes) {
+            scratch = ByteBuffer.allocate(Math.max(bytes, scratch.capacity() * 2));
+        }
+    }
+}
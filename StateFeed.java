@@ -0,0 +1,191 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Publishes one game's StateEncoder stream to any number of local subscribers. The game's own
+// thread calls publish after every turn; the turn is encoded once and the same byte array is
+// handed to every subscriber, so the cost per turn is one encode plus one call per subscriber.
+// Subscribers may join and leave from any thread. One that joins gets a keyframe at the next
+// publish and the deltas after it; all who join between two publishes share that keyframe.
+// Subscribers are called on the game's thread, so they must be quick and must not change the
+// frame; one that throws is dropped, not the game.
+public class StateFeed {
+
+    public interface Subscriber {
+        void onFrame(byte[] frame);
+    }
+
+    // Returned by subscribe; cancel stops the frames from the next publish on
+    public static class Subscription {
+        private final Subscriber subscriber;
+        private volatile boolean cancelled;
+
+        Subscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final StateEncoder encoder;
+    private final Queue<Subscription> joining = new ConcurrentLinkedQueue<>();
+    // Publishing thread only
+    private Subscription[] subscriptions = new Subscription[16];
+    private int subscriptionCount;
+
+    public StateFeed(Jumper game) {
+        this.encoder = new StateEncoder(game);
+    }
+
+    public Subscription subscribe(Subscriber subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        joining.add(subscription);
+        return subscription;
+    }
+
+    // Encodes the turn just played and delivers it. Returns the frame sent to the subscribers
+    // who were already following.
+    public byte[] publish() {
+        byte[] frame = encoder.nextFrame();
+        deliver(frame);
+        if (!joining.isEmpty()) {
+            byte[] keyframe = frame[0] == StateEncoder.KEYFRAME ? frame : encoder.keyframe();
+            int first = subscriptionCount;
+            for (Subscription subscription = joining.poll(); subscription != null; subscription = joining.poll()) {
+                if (subscriptionCount == subscriptions.length) {
+                    subscriptions = Arrays.copyOf(subscriptions, subscriptionCount * 2);
+                }
+                subscriptions[subscriptionCount++] = subscription;
+            }
+            deliver(keyframe, first);
+        }
+        return frame;
+    }
+
+    // Subscribers following as of the last publish
+    public int getSubscriberCount() {
+        return subscriptionCount;
+    }
+
+    private void deliver(byte[] frame) {
+        deliver(frame, 0);
+    }
+
+    // Sends the frame to the subscriptions from first on, dropping cancelled and failed ones
+    private void deliver(byte[] frame, int first) {
+        int kept = first;
+        for (int i = first; i < subscriptionCount; i++) {
+            Subscription subscription = subscriptions[i];
+            if (!subscription.cancelled) {
+                try {
+                    subscription.subscriber.onFrame(frame);
+                } catch (RuntimeException e) {
+                    subscription.cancelled = true;
+                }
+            }
+            if (!subscription.cancelled) {
+                subscriptions[kept++] = subscription;
+            }
+        }
+        Arrays.fill(subscriptions, kept, subscriptionCount, null);
+        subscriptionCount = kept;
+    }
+
+    // Plays greedy games with thousands of subscribers, some of them decoding, checks every
+    // decoder matches the game after every turn, and compares the bytes sent per turn with the
+    // size of a keyframe and of a drawn frame. Exits with status 1 if any decoded state differed;
+    // mvn verify runs it as a gate.
+    // Usage: java StateFeed [subscribers] [turns] [buildings file]
+    public static void main(String[] args) throws IOException {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        World layout = WorldLoader.load(args.length > 2 ? args[2] : "buildings.txt");
+        ArrayWorld large = new ArrayWorld(10_000);
+        SplittableRandom heights = new SplittableRandom(1);
+        for (int i = 0; i < large.size(); i++) {
+            large.setHeight(i, heights.nextInt(10) + 1);
+        }
+        large.setHasExitPortal(large.size() - 1, true);
+        large.setHasFuelCell(large.size() / 2, true);
+
+        int mismatches = run("buildings.txt", layout, subscribers, turns)
+                + run("10000 buildings", large, subscribers, turns / 20);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Returns how many decoded states differed from the game
+    private static int run(String name, World layout, int subscribers, int turns) throws IOException {
+        Player player = new Player("spectated");
+        Jumper game = new Jumper(layout.copy(), player, 1);
+        StateFeed feed = new StateFeed(game);
+        MoveStrategy strategy = new GreedyMoveStrategy();
+
+        int decoderCount = Math.min(subscribers, 100);
+        StateDecoder[] decoders = new StateDecoder[decoderCount];
+        for (int i = 0; i < decoderCount; i++) {
+            StateDecoder decoder = new StateDecoder();
+            decoders[i] = decoder;
+            feed.subscribe(frame -> {
+                try {
+                    decoder.apply(frame);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        long[] received = new long[1];
+        for (int i = decoderCount; i < subscribers; i++) {
+            feed.subscribe(frame -> received[0] += frame.length);
+        }
+
+        int mismatches = 0;
+        long keyframes = 0;
+        long keyframeBytes = 0;
+        long deltas = 0;
+        long deltaBytes = 0;
+        long publishTime = 0;
+        long seed = 1;
+        for (int turn = 0; turn < turns; turn++) {
+            if (turn > 0) {
+                if (player.getHasWon() || player.getHasLost()) {
+                    game.restart(++seed);
+                }
+                int maxJumpRange = game.getWorld().getHeight(player.getPosition());
+                game.playTurn(strategy.chooseJumpDirection(game, maxJumpRange), maxJumpRange);
+            }
+            long startTime = System.nanoTime();
+            byte[] frame = feed.publish();
+            publishTime += System.nanoTime() - startTime;
+            if (frame[0] == StateEncoder.KEYFRAME) {
+                keyframes++;
+                keyframeBytes += frame.length;
+            } else {
+                deltas++;
+                deltaBytes += frame.length;
+            }
+            byte[] expected = GameSnapshot.save(game);
+            for (StateDecoder decoder : decoders) {
+                if (decoder.getGame() == null || !Arrays.equals(GameSnapshot.save(decoder.getGame()), expected)) {
+                    mismatches++;
+                }
+            }
+        }
+        int drawn = new GameRenderer().render(game.getWorld(), player, game.getNumberOfTurnsPlayed()).length();
+        System.out.printf("%s: %d turns to %d subscribers (%d decoding), %d decoded states differed%n",
+                name, turns, feed.getSubscriberCount(), decoderCount, mismatches);
+        System.out.printf("  %d keyframes of %.0f bytes, %d deltas of %.1f bytes on average, a drawn frame is %d chars%n",
+                keyframes, (double) keyframeBytes / Math.max(1, keyframes), deltas,
+                (double) deltaBytes / Math.max(1, deltas), drawn);
+        System.out.printf("  publish %.1f us per turn, %.1f ns per subscriber%n",
+                publishTime / 1e3 / turns, (double) publishTime / turns / subscribers);
+        return mismatches;
+    }
+}
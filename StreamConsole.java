@@ -0,0 +1,56 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Console over a pair of streams, such as a socket's. Output is buffered and flushed
+// whenever the game waits for input, so each turn is one write to the stream.
+public class StreamConsole implements GameConsole {
+    private final BufferedReader in;
+    private final Writer out;
+
+    public StreamConsole(InputStream in, OutputStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 256);
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 4096);
+    }
+
+    public String readLine() {
+        flush();
+        return readLine(in);
+    }
+
+    static String readLine(BufferedReader in) {
+        try {
+            String line = in.readLine();
+            if (line == null) {
+                throw new EOFException("The player left the game");
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void print(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void println(CharSequence text) {
+        print(text);
+        println();
+    }
+
+    public void println() {
+        print(System.lineSeparator());
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.*;
+
+// Terminal console. System.in is read through one buffered reader for the whole program, so
+// lines typed (or piped) ahead of a prompt aren't lost between prompts.
+public class SystemConsole implements GameConsole {
+    static final SystemConsole INSTANCE = new SystemConsole();
+
+    private BufferedReader in;
+
+    public synchronized String readLine() {
+        System.out.flush();
+        if (in == null) {
+            in = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return StreamConsole.readLine(in);
+    }
+
+    public void print(CharSequence text) {
+        System.out.print(text);
+    }
+
+    public void println(CharSequence text) {
+        System.out.println(text);
+    }
+
+    public void println() {
+        System.out.println();
+    }
+
+    public void flush() {
+        System.out.flush();
+    }
+}
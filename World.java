@@ -0,0 +1,66 @@
+// The row of buildings a game is played on, addressed by building index.
+// ArrayWorld stores very large worlds compactly; ListWorld adapts a plain List<Building>;
+// ChunkedWorld generates an endless world as the player travels through it.
+public interface World {
+    int size();
+
+    int getHeight(int index);
+
+    void setHeight(int index, int height);
+
+    int getPreviousHeight(int index);
+
+    void setPreviousHeight(int index, int previousHeight);
+
+    boolean hasExitPortal(int index);
+
+    void setHasExitPortal(int index, boolean hasExitPortal);
+
+    boolean hasFuelCell(int index);
+
+    void setHasFuelCell(int index, boolean hasFuelCell);
+
+    boolean hasWeb(int index);
+
+    void setHasWeb(int index, boolean hasWeb);
+
+    boolean isFrozen(int index);
+
+    void setFrozen(int index, boolean frozen);
+
+    // The positions that have each flag, lowest first. Worlds keep these up to date as flags
+    // change, so they are read-only to callers; change flags through the setters.
+    PositionSet getExitPortals();
+
+    PositionSet getFuelCells();
+
+    PositionSet getWebs();
+
+    PositionSet getFrozenBuildings();
+
+    // Returns the building at the index; changes made through it change the world
+    Building getBuilding(int index);
+
+    // The buildings the random events of a turn act on run from getActiveStart() up to but not
+    // including getActiveEnd(). That is every building, except in an endless ChunkedWorld.
+    default int getActiveStart() {
+        return 0;
+    }
+
+    default int getActiveEnd() {
+        return size();
+    }
+
+    // Tells the world where the player is, so an endless world can move its active buildings along
+    default void focusOn(int position) {
+    }
+
+    // True when different threads may read and set the heights of different buildings at once,
+    // as a ParallelTick does
+    default boolean allowsConcurrentHeightUpdates() {
+        return true;
+    }
+
+    // Returns an independent copy with the same heights and flags
+    World copy();
+}
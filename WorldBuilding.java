@@ -0,0 +1,84 @@
+// A Building that reads and writes one index of a world instead of its own fields, for
+// worlds that don't keep Building objects
+public class WorldBuilding extends Building {
+    private final World world;
+    private final int index;
+
+    WorldBuilding(World world, int index) {
+        this.world = world;
+        this.index = index;
+    }
+
+    @Override
+    public int getHeight() {
+        return world.getHeight(index);
+    }
+
+    @Override
+    public void setHeight(int height) {
+        world.setHeight(index, height);
+    }
+
+    @Override
+    public boolean hasExitPortal() {
+        return world.hasExitPortal(index);
+    }
+
+    @Override
+    public void setHasExitPortal(boolean hasExitPortal) {
+        world.setHasExitPortal(index, hasExitPortal);
+    }
+
+    @Override
+    public boolean hasFuelCell() {
+        return world.hasFuelCell(index);
+    }
+
+    @Override
+    public void setHasFuelCell(boolean hasFuelCell) {
+        world.setHasFuelCell(index, hasFuelCell);
+    }
+
+    @Override
+    public boolean hasWeb() {
+        return world.hasWeb(index);
+    }
+
+    @Override
+    public void setHasWeb(boolean hasWeb) {
+        world.setHasWeb(index, hasWeb);
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return world.isFrozen(index);
+    }
+
+    @Override
+    public void setFrozen(boolean frozen) {
+        world.setFrozen(index, frozen);
+    }
+
+    @Override
+    public int getPreviousHeight() {
+        return world.getPreviousHeight(index);
+    }
+
+    @Override
+    public void setPreviousHeight(int previousHeight) {
+        world.setPreviousHeight(index, previousHeight);
+    }
+
+    // Two views of the same building are the same building, so indexOf still works on them
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof WorldBuilding
+                && ((WorldBuilding) other).index == index
+                && ((WorldBuilding) other).world == world;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+}
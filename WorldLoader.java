@@ -0,0 +1,299 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Loads layouts straight into an ArrayWorld, without a String or Building per line.
+// Two formats are understood:
+// - the buildings.txt text format, one "height,portal,fuel,web,frozen" line per building,
+//   read through memory-mapped windows of the file;
+// - a packed binary layout ("JMPW"): a header, the heights as shorts, then the portal,
+//   fuel cell, web and frozen bitsets as longs, which loads with a few bulk copies.
+// Usage: java WorldLoader <buildings.txt> <layout.jmpw>       converts text to binary
+//        java WorldLoader --text <layout.jmpw> <buildings.txt> converts binary to text
+public class WorldLoader {
+    public static final int MAGIC = 0x4A4D5057; // "JMPW"
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12; // magic, version and number of buildings
+    private static final long MAP_WINDOW = 1L << 28; // files are mapped 256 MB at a time
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    // Loads either format, telling them apart by the binary magic number
+    public static ArrayWorld load(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (isBinary(channel)) {
+                return readBinary(channel);
+            }
+            return readText(channel);
+        }
+    }
+
+    private static boolean isBinary(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // keep reading until the four bytes are in or the file ends
+        }
+        return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+    }
+
+    private static ArrayWorld readText(FileChannel channel) throws IOException {
+        // First pass counts the buildings so the arrays are allocated once at the right size
+        TextParser counter = new TextParser(null);
+        scan(channel, counter);
+        ArrayWorld world = new ArrayWorld(counter.getBuildingCount());
+
+        TextParser parser = new TextParser(world);
+        scan(channel, parser);
+        return world;
+    }
+
+    private static void scan(FileChannel channel, TextParser parser) throws IOException {
+        long size = channel.size();
+        byte[] chunk = new byte[64 * 1024];
+        for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_WINDOW, size - offset));
+            // Bulk copies out of the mapping are much cheaper than a get() per byte
+            while (window.hasRemaining()) {
+                int length = Math.min(chunk.length, window.remaining());
+                window.get(chunk, 0, length);
+                parser.accept(chunk, length);
+            }
+        }
+        parser.finish();
+    }
+
+    private static ArrayWorld readBinary(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading until the header is in or the file ends
+        }
+        if (header.hasRemaining()) {
+            throw new IOException("Binary layout header is truncated");
+        }
+        int version = header.getInt(4);
+        int size = header.getInt(8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary layout version " + version);
+        }
+        int words = wordCount(size);
+        long expectedBytes = HEADER_BYTES + 2L * size + 4L * 8 * words;
+        if (size < 0 || channel.size() < expectedBytes) {
+            throw new IOException("Binary layout is truncated: expected " + expectedBytes + " bytes");
+        }
+
+        short[] heights = new short[size];
+        long offset = HEADER_BYTES;
+        for (int done = 0; done < size; ) {
+            int count = (int) Math.min(size - done, MAP_WINDOW / 2);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset, 2L * count).asShortBuffer().get(heights, done, count);
+            done += count;
+            offset += 2L * count;
+        }
+        for (short height : heights) {
+            if (height < 0) {
+                throw new IOException("Binary layout has a negative building height");
+            }
+        }
+
+        BitSet[] flags = new BitSet[4];
+        for (int f = 0; f < flags.length; f++) {
+            LongBuffer bits = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * words).asLongBuffer();
+            flags[f] = BitSet.valueOf(bits);
+            flags[f].clear(size, Math.max(size, flags[f].length()));
+            offset += 8L * words;
+        }
+        // Previous heights start equal to the heights, as in the Building constructor
+        return new ArrayWorld(heights, heights.clone(), flags[0], flags[1], flags[2], flags[3]);
+    }
+
+    public static void writeBinary(World world, String fileName) throws IOException {
+        int size = world.size();
+        int words = wordCount(size);
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size);
+            for (int i = 0; i < size; i++) {
+                if (buffer.remaining() < 2) {
+                    drain(channel, buffer);
+                }
+                buffer.putShort((short) world.getHeight(i));
+            }
+            for (int f = 0; f < 4; f++) {
+                for (int word = 0; word < words; word++) {
+                    long bits = 0;
+                    int end = Math.min(size, (word + 1) * 64);
+                    for (int i = word * 64; i < end; i++) {
+                        if (flag(world, f, i)) {
+                            bits |= 1L << (i & 63);
+                        }
+                    }
+                    if (buffer.remaining() < 8) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(bits);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    // Writes the world in the buildings.txt format
+    public static void writeText(World world, String fileName) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName), WRITE_BUFFER)) {
+            writeText(world, writer);
+        }
+    }
+
+    public static void writeText(World world, Writer writer) throws IOException {
+        for (int i = 0; i < world.size(); i++) {
+            writer.write(Integer.toString(world.getHeight(i)));
+            for (int f = 0; f < 4; f++) {
+                writer.write(flag(world, f, i) ? ",True" : ",False");
+            }
+            writer.write('\n');
+        }
+    }
+
+    // Flags in file order: portal, fuel cell, web, frozen
+    private static boolean flag(World world, int flag, int index) {
+        switch (flag) {
+            case 0:
+                return world.hasExitPortal(index);
+            case 1:
+                return world.hasFuelCell(index);
+            case 2:
+                return world.hasWeb(index);
+            default:
+                return world.isFrozen(index);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) / 64;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--text")) {
+            writeText(load(args[1]), args[2]);
+        } else if (args.length == 2) {
+            writeBinary(load(args[0]), args[1]);
+        } else {
+            System.out.println("Usage: java WorldLoader <buildings.txt> <layout.jmpw>");
+            System.out.println("       java WorldLoader --text <layout.jmpw> <buildings.txt>");
+        }
+    }
+
+    // Byte-at-a-time parser for the text format. It keeps its place between calls, so lines
+    // may be split across mapped windows. Without a world it only counts the buildings.
+    // Flags follow Boolean.parseBoolean: only "true" in any case is true. Blank lines are skipped.
+    private static class TextParser {
+        private static final int TRUE = ('t' << 24) | ('r' << 16) | ('u' << 8) | 'e';
+
+        private final ArrayWorld world;
+        private int buildingCount;
+        private long lineNumber = 1;
+        private boolean lineHasContent;
+        private int field;
+        private int height;
+        private int heightDigits;
+        private int token;
+        private int tokenLength;
+        private boolean[] flags = new boolean[4];
+
+        TextParser(ArrayWorld world) {
+            this.world = world;
+        }
+
+        int getBuildingCount() {
+            return buildingCount;
+        }
+
+        void accept(byte[] bytes, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    endLine();
+                } else if (b == ' ' || b == '\t' || b == '\r') {
+                    // whitespace alone doesn't make a line; inside a value it makes it invalid or false
+                    if (b != '\r' && world != null) {
+                        acceptValueByte(b);
+                    }
+                } else {
+                    lineHasContent = true;
+                    if (world != null) {
+                        acceptValueByte(b);
+                    }
+                }
+            }
+        }
+
+        private void acceptValueByte(byte b) throws IOException {
+            if (b == ',') {
+                endField();
+            } else if (field == 0) {
+                if (b < '0' || b > '9') {
+                    throw new IOException("Invalid building height on line " + lineNumber);
+                }
+                height = height * 10 + (b - '0');
+                heightDigits++;
+                if (height > Short.MAX_VALUE) {
+                    throw new IOException("Building height too large on line " + lineNumber);
+                }
+            } else {
+                // Keeps the last four bytes of the flag in lower case
+                token = (token << 8) | (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b);
+                tokenLength++;
+            }
+        }
+
+        void finish() throws IOException {
+            endLine();
+        }
+
+        private void endField() throws IOException {
+            if (field == 0 && heightDigits == 0) {
+                throw new IOException("Missing building height on line " + lineNumber);
+            } else if (field >= 1 && field <= 4) {
+                flags[field - 1] = tokenLength == 4 && token == TRUE;
+            }
+            field++;
+            token = 0;
+            tokenLength = 0;
+        }
+
+        private void endLine() throws IOException {
+            if (lineHasContent) {
+                if (world != null) {
+                    endField();
+                    if (field < 5) {
+                        throw new IOException("Expected 5 values on line " + lineNumber + " but found " + field);
+                    }
+                    world.setHeight(buildingCount, height);
+                    world.setPreviousHeight(buildingCount, height);
+                    world.setHasExitPortal(buildingCount, flags[0]);
+                    world.setHasFuelCell(buildingCount, flags[1]);
+                    world.setHasWeb(buildingCount, flags[2]);
+                    world.setFrozen(buildingCount, flags[3]);
+                }
+                buildingCount++;
+            }
+            lineNumber++;
+            lineHasContent = false;
+            field = 0;
+            height = 0;
+            heightDigits = 0;
+            token = 0;
+            tokenLength = 0;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+// The game state behind bench.JumperBenchmarks. JMH refuses benchmark classes in the
+// default package and a named package can't see Jumper, so this class sits next to the
+// game (where the package-private turn methods are visible) and hands each measured
+// operation to the benchmark as a Runnable, looked up by name.
+public class JumperBenchmarkFixture implements Function<String, Runnable>, AutoCloseable {
+    private final World layout;
+    private final Path layoutFile;
+    private final PrintStream console;
+
+    private Jumper game;
+    private Jumper parallelGame;
+    private World world;
+    private HeightHistogram heights;
+    private int nextBuilding;
+    private byte[] snapshot;
+    private Object result; // keeps loaded worlds reachable so the load can't be optimised away
+
+    public JumperBenchmarkFixture(int size) throws IOException {
+        layout = generateWorld(size, 42);
+        layoutFile = Files.createTempFile("buildings", ".txt");
+        WorldLoader.writeText(layout, layoutFile.toString());
+
+        // displayGameInterface prints, so keep the frames out of the benchmark output
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        reset();
+    }
+
+    // Heights only ever shrink under updateGameConditions, so each iteration starts from the layout again
+    public void reset() {
+        world = layout.copy();
+        game = new Jumper(world, new Player("bench"), 7);
+        parallelGame = new Jumper(layout.copy(), new Player("bench"), 7);
+        parallelGame.setParallelTick(new ParallelTick());
+        heights = new HeightHistogram();
+        heights.reset(world);
+        nextBuilding = 0;
+        snapshot = GameSnapshot.save(game);
+    }
+
+    public Runnable apply(String operation) {
+        switch (operation) {
+            case "reset":
+                return this::reset;
+            case "updateGameConditions":
+                return () -> game.updateGameConditions();
+            case "updateGameConditionsParallel":
+                return () -> parallelGame.updateGameConditions();
+            case "changeHeightRandomly":
+                return this::changeHeightRandomly;
+            case "displayGameInterface":
+                return () -> game.displayGameInterface(null);
+            case "readBuildingsFromFile":
+                return this::readBuildingsFromFile;
+            case "placeFuelCellsRandomly":
+                // Measured together with removeFuelCells, as updateGameConditions calls them every third turn
+                return () -> {
+                    game.removeFuelCells();
+                    game.placeFuelCellsRandomly();
+                };
+            case "performJump":
+                return this::performJump;
+            case "saveSnapshot":
+                return () -> result = GameSnapshot.save(game);
+            case "restoreSnapshot":
+                return this::restoreSnapshot;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private void changeHeightRandomly() {
+        game.changeHeightRandomly(world, nextBuilding, heights);
+        nextBuilding = nextBuilding + 1 == world.size() ? 0 : nextBuilding + 1;
+    }
+
+    private void restoreSnapshot() {
+        try {
+            result = GameSnapshot.restore(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readBuildingsFromFile() {
+        Jumper loader = new Jumper();
+        loader.readBuildingsFromFile(layoutFile.toString());
+        result = loader.getWorld();
+    }
+
+    private void performJump() {
+        Player player = game.getPlayer();
+        player.setPosition(world.size() / 2);
+        player.setCharge(20);
+        game.performJump(JumpDirection.RIGHT, world.getHeight(player.getPosition()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        System.setOut(console);
+        Files.deleteIfExists(layoutFile);
+    }
+
+    // Heights 1 to 5 with a few fuel cells, one web, one frozen building and the exit portal at the end
+    static World generateWorld(int size, long seed) {
+        Random random = new Random(seed);
+        ArrayWorld world = new ArrayWorld(size);
+        for (int i = 0; i < size; i++) {
+            int height = random.nextInt(5) + 1;
+            world.setHeight(i, height);
+            world.setPreviousHeight(i, height);
+        }
+        for (int i = 0; i < 4; i++) {
+            world.setHasFuelCell(random.nextInt(size), true);
+        }
+        world.setHasWeb(random.nextInt(size), true);
+        world.setFrozen(random.nextInt(size), true);
+        world.setHasExitPortal(size - 1, true);
+        return world;
+    }
+}
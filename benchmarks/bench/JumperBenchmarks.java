@@ -0,0 +1,121 @@
+package bench;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+// Throughput of the Jumper hot paths on worlds of 14, 10k and 1M buildings.
+// Build and run: mvn -Pbenchmarks package && java -jar target/benchmarks.jar [JMH options]
+// The GC profiler is always added, so every result comes with its allocation rate.
+// The game classes are in the default package, which this package can't import, so the
+// state and operations come from JumperBenchmarkFixture, loaded by name.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JumperBenchmarks {
+
+    @Param({"14", "10000", "1000000"})
+    public int buildings;
+
+    private AutoCloseable fixture;
+    private Runnable reset;
+    private Runnable updateGameConditions;
+    private Runnable updateGameConditionsParallel;
+    private Runnable changeHeightRandomly;
+    private Runnable displayGameInterface;
+    private Runnable readBuildingsFromFile;
+    private Runnable placeFuelCellsRandomly;
+    private Runnable performJump;
+    private Runnable saveSnapshot;
+    private Runnable restoreSnapshot;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void createFixture() throws Exception {
+        fixture = (AutoCloseable) Class.forName("JumperBenchmarkFixture").getConstructor(int.class).newInstance(buildings);
+        Function<String, Runnable> operations = (Function<String, Runnable>) fixture;
+        reset = operations.apply("reset");
+        updateGameConditions = operations.apply("updateGameConditions");
+        updateGameConditionsParallel = operations.apply("updateGameConditionsParallel");
+        changeHeightRandomly = operations.apply("changeHeightRandomly");
+        displayGameInterface = operations.apply("displayGameInterface");
+        readBuildingsFromFile = operations.apply("readBuildingsFromFile");
+        placeFuelCellsRandomly = operations.apply("placeFuelCellsRandomly");
+        performJump = operations.apply("performJump");
+        saveSnapshot = operations.apply("saveSnapshot");
+        restoreSnapshot = operations.apply("restoreSnapshot");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetGame() {
+        reset.run();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeFixture() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void updateGameConditions() {
+        updateGameConditions.run();
+    }
+
+    // The same turn with the heights updated by a ParallelTick on the common fork/join pool
+    @Benchmark
+    public void updateGameConditionsParallel() {
+        updateGameConditionsParallel.run();
+    }
+
+    @Benchmark
+    public void changeHeightRandomly() {
+        changeHeightRandomly.run();
+    }
+
+    @Benchmark
+    public void displayGameInterface() {
+        displayGameInterface.run();
+    }
+
+    @Benchmark
+    public void readBuildingsFromFile() {
+        readBuildingsFromFile.run();
+    }
+
+    @Benchmark
+    public void placeFuelCellsRandomly() {
+        placeFuelCellsRandomly.run();
+    }
+
+    @Benchmark
+    public void performJump() {
+        performJump.run();
+    }
+
+    // Parking a game in a GameSnapshot and bringing it back, as an idle session would be
+    @Benchmark
+    public void saveSnapshot() {
+        saveSnapshot.run();
+    }
+
+    @Benchmark
+    public void restoreSnapshot() {
+        restoreSnapshot.run();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(JumperBenchmarks.class.getName());
+        }
+        new Runner(options.build()).run();
+    }
+}